@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.controllers;
+
+import com.devsuperior.dscommerce.services.MetricsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping(value = "/metrics")
+public class MetricsController {
+
+    @Autowired
+    private MetricsService service;
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @GetMapping
+    public ResponseEntity<Map<String, Map<String, Object>>> findAll() {
+        Map<String, Map<String, Object>> metrics = service.findAll();
+        return ResponseEntity.ok(metrics);
+    }
+}
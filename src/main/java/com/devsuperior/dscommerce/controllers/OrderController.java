@@ -1,6 +1,10 @@
 package com.devsuperior.dscommerce.controllers;
 
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderSummaryDTO;
+import com.devsuperior.dscommerce.services.IdempotentOrderService;
+import com.devsuperior.dscommerce.services.OrderIngestionService;
 import com.devsuperior.dscommerce.services.OrderService;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +22,12 @@ public class OrderController {
     @Autowired
     private OrderService service;
 
+    @Autowired
+    private IdempotentOrderService idempotentService;
+
+    @Autowired
+    private OrderIngestionService ingestionService;
+
     @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_CLIENT')")
     @GetMapping(value = "/{id}")
     public ResponseEntity<OrderDTO> findById(@PathVariable Long id) {
@@ -25,12 +35,45 @@ public class OrderController {
         return ResponseEntity.ok(dto);
     }
 
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_CLIENT')")
+    @GetMapping(value = "/me")
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> findMine(
+            @RequestParam(name = "after", defaultValue = "") String after,
+            @RequestParam(name = "size", defaultValue = "20") Integer size) {
+        CursorPageDTO<OrderSummaryDTO> dto = service.findMine(after, size);
+        return ResponseEntity.ok(dto);
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @GetMapping(params = "clientId")
+    public ResponseEntity<CursorPageDTO<OrderSummaryDTO>> findByClient(
+            @RequestParam(name = "clientId") Long clientId,
+            @RequestParam(name = "after", defaultValue = "") String after,
+            @RequestParam(name = "size", defaultValue = "20") Integer size) {
+        CursorPageDTO<OrderSummaryDTO> dto = service.findByClient(clientId, after, size);
+        return ResponseEntity.ok(dto);
+    }
+
     @PreAuthorize("hasAnyRole('ROLE_CLIENT')")
     @PostMapping
-    public ResponseEntity<OrderDTO> insert(@Valid @RequestBody OrderDTO dto) {
-        dto = service.insert(dto);
+    public ResponseEntity<OrderDTO> insert(@Valid @RequestBody OrderDTO dto,
+            @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (idempotencyKey != null) {
+            dto = idempotentService.insert(dto, idempotencyKey);
+        } else if (ingestionService.isEnabled()) {
+            dto = ingestionService.insert(dto);
+        } else {
+            dto = service.insert(dto);
+        }
         URI uri = ServletUriComponentsBuilder.fromCurrentRequest().path("/{id}")
                 .buildAndExpand(dto.getId()).toUri();
         return ResponseEntity.created(uri).body(dto);
     }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN', 'ROLE_CLIENT')")
+    @PostMapping(value = "/{id}/cancel")
+    public ResponseEntity<OrderDTO> cancel(@PathVariable Long id) {
+        OrderDTO dto = service.cancel(id);
+        return ResponseEntity.ok(dto);
+    }
 }
@@ -1,18 +1,38 @@
 package com.devsuperior.dscommerce.controllers;
 
+import com.devsuperior.dscommerce.dto.BulkDeleteResultDTO;
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
+import com.devsuperior.dscommerce.dto.ImportResultDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductFilterDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.ProductPatchDTO;
+import com.devsuperior.dscommerce.dto.SliceDTO;
+import com.devsuperior.dscommerce.dto.StockDTO;
+import com.devsuperior.dscommerce.services.ProductExportService;
+import com.devsuperior.dscommerce.services.ProductImportService;
 import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.services.StockReservationService;
+import com.devsuperior.dscommerce.services.cache.CachedJson;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.util.ETags;
 import jakarta.validation.Valid;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
+import java.io.Reader;
 import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
 
 @RestController
 @RequestMapping(value = "/products")
@@ -21,20 +41,89 @@ public class ProductController {
     @Autowired
     private ProductService service;
 
+    @Autowired
+    private StockReservationService stockService;
+
+    @Autowired
+    private ProductImportService importService;
+
+    @Autowired
+    private ProductExportService exportService;
+
     @GetMapping(value = "/{id}")
-    public ResponseEntity<ProductDTO> findById(@PathVariable Long id) {
-        ProductDTO dto = service.findById(id);
-        return ResponseEntity.ok(dto);
+    public ResponseEntity<byte[]> findById(
+            @PathVariable Long id,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        if (ifNoneMatch != null) {
+            String etag = service.findByIdETag(id);
+            if (etag != null && ETags.matches(ifNoneMatch, variant(etag, gzip))) {
+                return notModified(variant(etag, gzip));
+            }
+        }
+        CachedJson json = service.findByIdJson(id);
+        return jsonResponse(json, gzip);
     }
 
     @GetMapping
-    public ResponseEntity<Page<ProductMinDTO>> findAll(
+    public ResponseEntity<byte[]> findAll(
             @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            @RequestHeader(name = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch,
             Pageable pageable) {
-        Page<ProductMinDTO> dto = service.findAll(name, pageable);
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String etag = variant(service.findAllETag(), gzip);
+        if (ETags.matches(ifNoneMatch, etag)) {
+            return notModified(etag);
+        }
+        CachedJson json = service.findAllJson(name, pageable);
+        return jsonResponse(json, gzip);
+    }
+
+    @GetMapping(params = "ids")
+    public ResponseEntity<List<ProductDTO>> findAllByIds(@RequestParam(name = "ids") List<Long> ids) {
+        List<ProductDTO> list = service.findAllByIds(ids);
+        return ResponseEntity.ok(list);
+    }
+
+    @GetMapping(params = {"count=false", "!after", "!ids"})
+    public ResponseEntity<SliceDTO<ProductMinDTO>> findAllSlice(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            Pageable pageable) {
+        SliceDTO<ProductMinDTO> dto = service.findAllSlice(name, pageable);
         return ResponseEntity.ok(dto);
     }
 
+    @GetMapping(params = {"after", "!ids"})
+    public ResponseEntity<CursorPageDTO<ProductMinDTO>> findAllAfter(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "after") String after,
+            @RequestParam(name = "sort", defaultValue = "id") String sort,
+            @RequestParam(name = "size", defaultValue = "20") Integer size) {
+        CursorPageDTO<ProductMinDTO> dto = service.findAllAfter(name, after, sort, size);
+        return ResponseEntity.ok(dto);
+    }
+
+    @GetMapping(value = "/filter")
+    public ResponseEntity<ProductFilterDTO> filter(
+            @RequestParam(name = "name", defaultValue = "") String name,
+            @RequestParam(name = "categoryId", defaultValue = "") List<Long> categoryIds,
+            @RequestParam(name = "minPrice", required = false) Double minPrice,
+            @RequestParam(name = "maxPrice", required = false) Double maxPrice,
+            Pageable pageable) {
+        ProductFilterDTO dto = service.filter(name, categoryIds, minPrice, maxPrice, pageable);
+        return ResponseEntity.ok(dto);
+    }
+
+    @GetMapping(value = "/suggest")
+    public ResponseEntity<List<ProductMinDTO>> suggest(
+            @RequestParam(name = "q", defaultValue = "") String q,
+            @RequestParam(name = "limit", defaultValue = "10") Integer limit) {
+        List<ProductMinDTO> list = service.suggest(q, limit);
+        return ResponseEntity.ok(list);
+    }
+
     @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
     @PostMapping
     public ResponseEntity<ProductDTO> insert(@Valid @RequestBody ProductDTO dto) {
@@ -43,10 +132,63 @@ public class ProductController {
         return ResponseEntity.created(uri).body(dto);
     }
 
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @GetMapping(value = "/export")
+    public ResponseEntity<StreamingResponseBody> export(
+            @RequestParam(name = "format", defaultValue = "ndjson") String format) {
+        return switch (format) {
+            case "ndjson" -> ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_NDJSON)
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products.ndjson")
+                    .body(exportService::exportNdjson);
+            case "csv" -> ResponseEntity.ok()
+                    .contentType(new MediaType("text", "csv", StandardCharsets.UTF_8))
+                    .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=products.csv")
+                    .body(exportService::exportCsv);
+            default -> throw new BadRequestException("Formato não suportado: " + format);
+        };
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "application/x-ndjson")
+    public ResponseEntity<ImportResultDTO> importNdjson(Reader body) {
+        ImportResultDTO result = importService.importNdjson(body);
+        return ResponseEntity.ok(result);
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @PostMapping(value = "/import", consumes = "text/csv")
+    public ResponseEntity<ImportResultDTO> importCsv(Reader body) {
+        ImportResultDTO result = importService.importCsv(body);
+        return ResponseEntity.ok(result);
+    }
+
     @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
     @PutMapping(value = "/{id}")
-    public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto) {
-        dto = service.update(id, dto);
+    public ResponseEntity<ProductDTO> update(@PathVariable Long id, @Valid @RequestBody ProductDTO dto,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        dto = service.update(id, dto, ifMatch);
+        return ResponseEntity.ok().eTag(service.productETag(dto)).body(dto);
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @PatchMapping(value = "/{id}")
+    public ResponseEntity<ProductDTO> patch(@PathVariable Long id, @Valid @RequestBody ProductPatchDTO dto,
+            @RequestHeader(name = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        ProductDTO result = service.patch(id, dto, ifMatch);
+        return ResponseEntity.ok().eTag(service.productETag(result)).body(result);
+    }
+
+    @GetMapping(value = "/{id}/stock")
+    public ResponseEntity<StockDTO> findStock(@PathVariable Long id) {
+        StockDTO dto = stockService.findStock(id);
+        return ResponseEntity.ok(dto);
+    }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @PutMapping(value = "/{id}/stock")
+    public ResponseEntity<StockDTO> updateStock(@PathVariable Long id, @Valid @RequestBody StockDTO dto) {
+        dto = stockService.setStock(id, dto.getStock());
         return ResponseEntity.ok(dto);
     }
 
@@ -56,4 +198,67 @@ public class ProductController {
         service.delete(id);
         return ResponseEntity.noContent().build();
     }
+
+    @PreAuthorize("hasAnyRole('ROLE_ADMIN')")
+    @PostMapping(value = "/bulk-delete")
+    public ResponseEntity<BulkDeleteResultDTO> deleteAll(@RequestBody List<Long> ids) {
+        BulkDeleteResultDTO result = service.deleteAll(ids);
+        return ResponseEntity.ok(result);
+    }
+
+    private ResponseEntity<byte[]> jsonResponse(CachedJson json, boolean gzip) {
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(variant(json.getEtag(), gzip))
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip").body(json.getGzip());
+        }
+        return builder.body(json.getJson());
+    }
+
+    private ResponseEntity<byte[]> notModified(String etag) {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .eTag(etag)
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING)
+                .build();
+    }
+
+    // gzip is chosen when it is listed with a non-zero q, or when it is not
+    // listed and "*" is. A q of 0 means the client refuses that coding.
+    private boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String coding : acceptEncoding.split(",")) {
+            String[] parts = coding.split(";");
+            String name = parts[0].trim().toLowerCase(Locale.ROOT);
+            double q = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String param = parts[i].trim();
+                if (param.regionMatches(true, 0, "q=", 0, 2)) {
+                    try {
+                        q = Double.parseDouble(param.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        q = 0.0;
+                    }
+                }
+            }
+            if (name.equals("gzip") || name.equals("x-gzip")) {
+                gzip = q;
+            } else if (name.equals("*")) {
+                any = q;
+            }
+        }
+        if (gzip != null) {
+            return gzip > 0;
+        }
+        return any != null && any > 0;
+    }
+
+    private String variant(String etag, boolean gzip) {
+        return gzip ? ETags.gzip(etag) : etag;
+    }
 }
@@ -0,0 +1,32 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class BulkDeleteResultDTO {
+
+    private List<Long> deleted = new ArrayList<>();
+    private List<Long> blocked = new ArrayList<>();
+    private List<Long> notFound = new ArrayList<>();
+
+    public BulkDeleteResultDTO() {
+    }
+
+    public List<Long> getDeleted() {
+        return deleted;
+    }
+
+    public List<Long> getBlocked() {
+        return blocked;
+    }
+
+    public List<Long> getNotFound() {
+        return notFound;
+    }
+
+    public void addAll(BulkDeleteResultDTO other) {
+        deleted.addAll(other.getDeleted());
+        blocked.addAll(other.getBlocked());
+        notFound.addAll(other.getNotFound());
+    }
+}
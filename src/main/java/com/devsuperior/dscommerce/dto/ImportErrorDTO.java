@@ -0,0 +1,20 @@
+package com.devsuperior.dscommerce.dto;
+
+public class ImportErrorDTO {
+
+    private Long line;
+    private String message;
+
+    public ImportErrorDTO(Long line, String message) {
+        this.line = line;
+        this.message = message;
+    }
+
+    public Long getLine() {
+        return line;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,46 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class ImportResultDTO {
+
+    private Long received;
+    private Long imported;
+    private Long failed;
+    private Long elapsedMillis;
+    private Double rowsPerSecond;
+    private List<ImportErrorDTO> errors = new ArrayList<>();
+
+    public ImportResultDTO(Long received, Long imported, Long failed, Long elapsedMillis, Double rowsPerSecond) {
+        this.received = received;
+        this.imported = imported;
+        this.failed = failed;
+        this.elapsedMillis = elapsedMillis;
+        this.rowsPerSecond = rowsPerSecond;
+    }
+
+    public Long getReceived() {
+        return received;
+    }
+
+    public Long getImported() {
+        return imported;
+    }
+
+    public Long getFailed() {
+        return failed;
+    }
+
+    public Long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public Double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+
+    public List<ImportErrorDTO> getErrors() {
+        return errors;
+    }
+}
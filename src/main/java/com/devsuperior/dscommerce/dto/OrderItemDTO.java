@@ -1,12 +1,18 @@
 package com.devsuperior.dscommerce.dto;
 
 import com.devsuperior.dscommerce.entities.OrderItem;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Positive;
 
 public class OrderItemDTO {
 
+    @NotNull(message = "Campo requerido")
     private Long productId;
     private String name;
     private Double price;
+
+    @NotNull(message = "Campo requerido")
+    @Positive(message = "A quantidade deve ser positiva")
     private Integer quantity;
     private String imgUrl;
 
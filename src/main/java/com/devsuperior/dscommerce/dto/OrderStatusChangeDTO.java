@@ -0,0 +1,36 @@
+package com.devsuperior.dscommerce.dto;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+import java.time.Instant;
+
+public class OrderStatusChangeDTO {
+
+    private Long orderId;
+    private OrderStatus previousStatus;
+    private OrderStatus status;
+    private Instant moment;
+
+    public OrderStatusChangeDTO(Long orderId, OrderStatus previousStatus, OrderStatus status, Instant moment) {
+        this.orderId = orderId;
+        this.previousStatus = previousStatus;
+        this.status = status;
+        this.moment = moment;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public OrderStatus getPreviousStatus() {
+        return previousStatus;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Instant getMoment() {
+        return moment;
+    }
+}
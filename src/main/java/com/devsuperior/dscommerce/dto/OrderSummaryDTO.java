@@ -0,0 +1,42 @@
+package com.devsuperior.dscommerce.dto;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+
+import java.time.Instant;
+
+public class OrderSummaryDTO {
+
+    private Long id;
+    private Instant moment;
+    private OrderStatus status;
+    private Long itemCount;
+    private Double total;
+
+    public OrderSummaryDTO(Long id, Instant moment, OrderStatus status, Long itemCount, Double total) {
+        this.id = id;
+        this.moment = moment;
+        this.status = status;
+        this.itemCount = itemCount;
+        this.total = total;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Instant getMoment() {
+        return moment;
+    }
+
+    public OrderStatus getStatus() {
+        return status;
+    }
+
+    public Long getItemCount() {
+        return itemCount;
+    }
+
+    public Double getTotal() {
+        return total;
+    }
+}
@@ -0,0 +1,47 @@
+package com.devsuperior.dscommerce.dto;
+
+import java.util.List;
+
+public class ProductFilterDTO {
+
+    private List<ProductMinDTO> content;
+    private Integer number;
+    private Integer size;
+    private Long totalElements;
+    private List<CategoryFacetDTO> categories;
+    private List<PriceFacetDTO> prices;
+
+    public ProductFilterDTO(List<ProductMinDTO> content, Integer number, Integer size, Long totalElements,
+                            List<CategoryFacetDTO> categories, List<PriceFacetDTO> prices) {
+        this.content = content;
+        this.number = number;
+        this.size = size;
+        this.totalElements = totalElements;
+        this.categories = categories;
+        this.prices = prices;
+    }
+
+    public List<ProductMinDTO> getContent() {
+        return content;
+    }
+
+    public Integer getNumber() {
+        return number;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public Long getTotalElements() {
+        return totalElements;
+    }
+
+    public List<CategoryFacetDTO> getCategories() {
+        return categories;
+    }
+
+    public List<PriceFacetDTO> getPrices() {
+        return prices;
+    }
+}
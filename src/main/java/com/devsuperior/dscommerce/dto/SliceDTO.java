@@ -0,0 +1,43 @@
+package com.devsuperior.dscommerce.dto;
+
+import org.springframework.data.domain.Slice;
+
+import java.util.List;
+
+public class SliceDTO<T> {
+
+    private List<T> content;
+    private Integer number;
+    private Integer size;
+    private boolean hasNext;
+
+    public SliceDTO(List<T> content, Integer number, Integer size, boolean hasNext) {
+        this.content = content;
+        this.number = number;
+        this.size = size;
+        this.hasNext = hasNext;
+    }
+
+    public SliceDTO(Slice<T> slice) {
+        content = slice.getContent();
+        number = slice.getNumber();
+        size = slice.getSize();
+        hasNext = slice.hasNext();
+    }
+
+    public List<T> getContent() {
+        return content;
+    }
+
+    public Integer getNumber() {
+        return number;
+    }
+
+    public Integer getSize() {
+        return size;
+    }
+
+    public boolean isHasNext() {
+        return hasNext;
+    }
+}
@@ -0,0 +1,24 @@
+package com.devsuperior.dscommerce.dto;
+
+import jakarta.validation.constraints.PositiveOrZero;
+
+public class StockDTO {
+
+    private Long productId;
+
+    @PositiveOrZero(message = "O estoque não pode ser negativo")
+    private Integer stock;
+
+    public StockDTO(Long productId, Integer stock) {
+        this.productId = productId;
+        this.stock = stock;
+    }
+
+    public Long getProductId() {
+        return productId;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+}
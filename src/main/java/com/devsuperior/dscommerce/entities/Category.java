@@ -11,11 +11,16 @@ import java.util.Set;
 public class Category {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_category")
+    @SequenceGenerator(name = "seq_category", sequenceName = "seq_category", allocationSize = 50)
     private Long id;
 
     private String name;
 
+    @Version
+    @Column(columnDefinition = "integer default 0 not null")
+    private Integer version;
+
     @ManyToMany(mappedBy = "categories")
     private Set<Product> products = new HashSet<>();
 
@@ -44,6 +49,10 @@ public class Category {
         this.name = name;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
     public Set<Product> getProducts() {
         return products;
     }
@@ -0,0 +1,74 @@
+package com.devsuperior.dscommerce.entities;
+
+import jakarta.persistence.*;
+
+import java.time.Instant;
+import java.util.Objects;
+
+@Entity
+@Table(name = "tb_idempotency_key")
+public class IdempotencyRecord {
+
+    @Id
+    private String id;
+
+    private Long clientId;
+    private String requestHash;
+    private Long orderId;
+
+    @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
+    private Instant createdAt;
+
+    // Null until persisted, which makes save() persist instead of merge: a
+    // key taken by a concurrent request then fails on insert rather than
+    // being overwritten.
+    @Version
+    private Integer version;
+
+    public IdempotencyRecord() {
+
+    }
+
+    public IdempotencyRecord(String id, Long clientId, String requestHash, Long orderId, Instant createdAt) {
+        this.id = id;
+        this.clientId = clientId;
+        this.requestHash = requestHash;
+        this.orderId = orderId;
+        this.createdAt = createdAt;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public Long getClientId() {
+        return clientId;
+    }
+
+    public String getRequestHash() {
+        return requestHash;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Instant getCreatedAt() {
+        return createdAt;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        IdempotencyRecord that = (IdempotencyRecord) o;
+
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() {
+        return id != null ? id.hashCode() : 0;
+    }
+}
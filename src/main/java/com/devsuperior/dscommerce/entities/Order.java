@@ -10,12 +10,15 @@ import java.util.Objects;
 import java.util.Set;
 
 @Entity
-@Table(name = "tb_order")
+@Table(name = "tb_order", indexes = {
+        @Index(name = "idx_order_client_moment", columnList = "client_id, moment"),
+        @Index(name = "idx_order_status", columnList = "status")})
 public class Order implements Serializable {
     private static final long serialVersionUID = 1L;
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_order")
+    @SequenceGenerator(name = "seq_order", sequenceName = "seq_order", allocationSize = 50)
     private Long id;
 
     @Column(columnDefinition = "TIMESTAMP WITHOUT TIME ZONE")
@@ -30,7 +33,7 @@ public class Order implements Serializable {
     @OneToOne(mappedBy = "order", cascade = CascadeType.ALL)
     private Payment payment;
 
-    @OneToMany(mappedBy = "id.order")
+    @OneToMany(mappedBy = "id.order", cascade = CascadeType.PERSIST)
     private Set<OrderItem> items = new HashSet<>();
 
     public Order() {
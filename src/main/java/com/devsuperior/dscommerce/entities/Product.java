@@ -12,7 +12,8 @@ import java.util.Set;
 public class Product {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_product")
+    @SequenceGenerator(name = "seq_product", sequenceName = "seq_product", allocationSize = 50)
     private Long id;
 
     private String name;
@@ -23,6 +24,15 @@ public class Product {
     private Double price;
     private String imgUrl;
 
+    @Version
+    @Column(columnDefinition = "integer default 0 not null")
+    private Integer version;
+
+    // Changed only by StockReservationService through conditional updates, so
+    // a product save never writes back a stale value. Null means untracked.
+    @Column(insertable = false, updatable = false)
+    private Integer stock;
+
     @ManyToMany
     @JoinTable(name = "tb_product_category",
             joinColumns = @JoinColumn(name = "product_id"),
@@ -84,6 +94,14 @@ public class Product {
         this.imgUrl = imgUrl;
     }
 
+    public Integer getVersion() {
+        return version;
+    }
+
+    public Integer getStock() {
+        return stock;
+    }
+
     public Set<Category> getCategories() {
         return categories;
     }
@@ -0,0 +1,22 @@
+package com.devsuperior.dscommerce.events;
+
+import java.time.Instant;
+
+public class OrderCreatedEvent {
+
+    private Long id;
+    private Instant moment;
+
+    public OrderCreatedEvent(Long id, Instant moment) {
+        this.id = id;
+        this.moment = moment;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public Instant getMoment() {
+        return moment;
+    }
+}
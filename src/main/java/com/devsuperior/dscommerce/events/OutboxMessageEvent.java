@@ -0,0 +1,16 @@
+package com.devsuperior.dscommerce.events;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+
+public class OutboxMessageEvent {
+
+    private OutboxMessage message;
+
+    public OutboxMessageEvent(OutboxMessage message) {
+        this.message = message;
+    }
+
+    public OutboxMessage getMessage() {
+        return message;
+    }
+}
@@ -0,0 +1,26 @@
+package com.devsuperior.dscommerce.events;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+
+public class ProductChangedEvent {
+
+    private Long id;
+    private ProductDTO product;
+
+    public ProductChangedEvent(Long id, ProductDTO product) {
+        this.id = id;
+        this.product = product;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public ProductDTO getProduct() {
+        return product;
+    }
+
+    public boolean isDeleted() {
+        return product == null;
+    }
+}
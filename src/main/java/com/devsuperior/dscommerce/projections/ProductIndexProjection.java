@@ -0,0 +1,9 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface ProductIndexProjection {
+
+    Long getId();
+    String getName();
+    Double getPrice();
+    String getImgUrl();
+}
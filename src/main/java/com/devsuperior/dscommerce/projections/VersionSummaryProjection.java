@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.projections;
+
+public interface VersionSummaryProjection {
+
+    Long getTotal();
+    Long getMaxId();
+    Long getVersionSum();
+}
@@ -1,7 +1,13 @@
 package com.devsuperior.dscommerce.repositories;
 
 import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.projections.VersionSummaryProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 
 public interface CategoryRepository extends JpaRepository<Category, Long> {
+
+    @Query("SELECT COUNT(obj) AS total, COALESCE(MAX(obj.id), 0) AS maxId, "
+            + "COALESCE(SUM(obj.version), 0) AS versionSum FROM Category obj")
+    VersionSummaryProjection findVersionSummary();
 }
@@ -2,7 +2,19 @@ package com.devsuperior.dscommerce.repositories;
 
 import com.devsuperior.dscommerce.entities.OrderItem;
 import com.devsuperior.dscommerce.entities.OrderItemPK;
+import com.devsuperior.dscommerce.projections.ProductQuantityProjection;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, OrderItemPK> {
+
+    @Query("SELECT DISTINCT obj.id.product.id FROM OrderItem obj WHERE obj.id.product.id IN :productIds")
+    List<Long> findReferencedProductIds(Collection<Long> productIds);
+
+    @Query("SELECT obj.id.product.id AS productId, SUM(obj.quantity) AS quantity FROM OrderItem obj "
+                + "WHERE obj.id.order.id IN :orderIds GROUP BY obj.id.product.id")
+    List<ProductQuantityProjection> sumQuantitiesByOrderIds(Collection<Long> orderIds);
 }
@@ -1,7 +1,49 @@
 package com.devsuperior.dscommerce.repositories;
 
+import com.devsuperior.dscommerce.dto.OrderSummaryDTO;
 import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.projections.OrderMomentProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
+
+    @Query("SELECT DISTINCT obj FROM Order obj "
+            + "JOIN FETCH obj.client c "
+            + "LEFT JOIN FETCH c.roles "
+            + "LEFT JOIN FETCH obj.payment "
+            + "LEFT JOIN FETCH obj.items i "
+            + "LEFT JOIN FETCH i.id.product "
+            + "WHERE obj.id = :id")
+    Optional<Order> findWithDetailsById(Long id);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.OrderSummaryDTO(obj.id, obj.moment, obj.status, "
+                + "COUNT(i), COALESCE(SUM(i.price * i.quantity), 0.0)) "
+                + "FROM Order obj LEFT JOIN obj.items i "
+                + "WHERE obj.client.id = :clientId "
+                + "AND (obj.moment < :lastMoment OR (obj.moment = :lastMoment AND obj.id < :lastId)) "
+                + "GROUP BY obj.id, obj.moment, obj.status "
+                + "ORDER BY obj.moment DESC, obj.id DESC")
+    List<OrderSummaryDTO> searchByClientBefore(Long clientId, Instant lastMoment, Long lastId, Pageable pageable);
+
+    @Modifying
+    @Query("UPDATE Order obj SET obj.status = :to WHERE obj.id = :id AND obj.status = :from")
+    int updateStatus(Long id, OrderStatus from, OrderStatus to);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT obj.id AS id, obj.moment AS moment FROM Order obj WHERE obj.status = :status")
+    Stream<OrderMomentProjection> streamByStatus(OrderStatus status);
 }
@@ -0,0 +1,24 @@
+package com.devsuperior.dscommerce.repositories;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface OutboxMessageRepository extends JpaRepository<OutboxMessage, Long> {
+
+    // Ids are assigned at persist, not at commit, so this is only ordered per
+    // aggregate, not globally.
+    @Query("SELECT obj FROM OutboxMessage obj ORDER BY obj.id")
+    List<OutboxMessage> findNextBatch(Pageable pageable);
+
+    List<OutboxMessage> findByAggregateIdOrderById(Long aggregateId);
+
+    @Modifying
+    @Query("DELETE FROM OutboxMessage obj WHERE obj.id IN :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+}
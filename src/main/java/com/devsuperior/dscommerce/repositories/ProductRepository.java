@@ -1,15 +1,112 @@
 package com.devsuperior.dscommerce.repositories;
 
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
 import com.devsuperior.dscommerce.entities.Product;
-import org.springframework.data.domain.Page;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductExportProjection;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import com.devsuperior.dscommerce.projections.StockProjection;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
 public interface ProductRepository extends JpaRepository<Product, Long> {
 
-    @Query("SELECT obj FROM Product obj "
+    @EntityGraph(attributePaths = "categories")
+    Optional<Product> findWithCategoriesById(Long id);
+
+    @Query("SELECT DISTINCT obj FROM Product obj LEFT JOIN FETCH obj.categories WHERE obj.id IN :ids")
+    List<Product> findWithCategoriesByIdIn(Collection<Long> ids);
+
+    @Query("SELECT obj.version FROM Product obj WHERE obj.id = :id")
+    Optional<Integer> findVersionById(Long id);
+
+    @Query("SELECT obj.id FROM Product obj WHERE obj.id IN :ids")
+    List<Long> findExistingIds(Collection<Long> ids);
+
+    // Runs two statements: Hibernate first deletes the matched rows from
+    // tb_product_category, then the products themselves. Callers need a
+    // transaction so a failing product delete rolls the link delete back.
+    @Modifying
+    @Query("DELETE FROM Product obj WHERE obj.id = :id")
+    int deleteOneById(Long id);
+
+    @Modifying
+    @Query("DELETE FROM Product obj WHERE obj.id IN :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    @Query(nativeQuery = true, value = "SELECT id, stock FROM tb_product WHERE id = :id")
+    Optional<StockProjection> findStockById(Long id);
+
+    // Untracked products (null stock) always match and stay null.
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE tb_product SET stock = stock - :quantity "
+                + "WHERE id = :id AND (stock IS NULL OR stock >= :quantity)")
+    int reserveStock(Long id, int quantity);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE tb_product SET stock = stock + :quantity "
+                + "WHERE id = :id AND stock IS NOT NULL")
+    int releaseStock(Long id, int quantity);
+
+    @Modifying
+    @Query(nativeQuery = true, value = "UPDATE tb_product SET stock = :stock WHERE id = :id")
+    int updateStock(Long id, Integer stock);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) "
+                + "FROM Product obj "
+                + "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))")
+    Slice<ProductMinDTO> searchByName(String name, Pageable pageable);
+
+    @Query("SELECT COUNT(obj) FROM Product obj "
                 + "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%'))")
-    Page<Product> searchByName(String name, Pageable pageable);
+    long countByName(String name);
+
+    @Query("SELECT obj.id AS id, obj.name AS name, obj.price AS price, obj.imgUrl AS imgUrl FROM Product obj")
+    List<ProductIndexProjection> findAllForIndex();
+
+    @Query("SELECT obj.id AS productId, cat.id AS categoryId FROM Product obj JOIN obj.categories cat")
+    List<ProductCategoryProjection> findAllCategoryLinks();
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")})
+    @Query("SELECT obj.id AS id, obj.name AS name, obj.description AS description, obj.price AS price, "
+                + "obj.imgUrl AS imgUrl, cat.id AS categoryId, cat.name AS categoryName "
+                + "FROM Product obj LEFT JOIN obj.categories cat "
+                + "ORDER BY obj.id, cat.id")
+    Stream<ProductExportProjection> streamAllForExport();
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) "
+                + "FROM Product obj "
+                + "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%')) "
+                + "AND obj.id > :lastId "
+                + "ORDER BY obj.id")
+    List<ProductMinDTO> searchByNameAfterId(String name, Long lastId, Pageable pageable);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) "
+                + "FROM Product obj "
+                + "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%')) "
+                + "AND (obj.name > :lastName OR (obj.name = :lastName AND obj.id > :lastId)) "
+                + "ORDER BY obj.name, obj.id")
+    List<ProductMinDTO> searchByNameAfterName(String name, String lastName, Long lastId, Pageable pageable);
+
+    @Query("SELECT new com.devsuperior.dscommerce.dto.ProductMinDTO(obj.id, obj.name, obj.price, obj.imgUrl) "
+                + "FROM Product obj "
+                + "WHERE UPPER(obj.name) LIKE UPPER(CONCAT('%', :name, '%')) "
+                + "AND (obj.price > :lastPrice OR (obj.price = :lastPrice AND obj.id > :lastId)) "
+                + "ORDER BY obj.price, obj.id")
+    List<ProductMinDTO> searchByNameAfterPrice(String name, Double lastPrice, Long lastId, Pageable pageable);
 
 }
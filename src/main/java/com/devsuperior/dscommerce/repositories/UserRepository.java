@@ -2,6 +2,7 @@ package com.devsuperior.dscommerce.repositories;
 
 import com.devsuperior.dscommerce.entities.User;
 import com.devsuperior.dscommerce.projections.UserDetailsProjection;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
@@ -21,5 +22,6 @@ public interface UserRepository extends JpaRepository<User, Long> {
 			""")
     List<UserDetailsProjection> searchUserAndRolesByEmail(String email);
 
+    @EntityGraph(attributePaths = "roles")
     Optional<User> findByEmail(String email);
 }
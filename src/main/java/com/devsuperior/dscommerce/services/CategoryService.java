@@ -2,7 +2,9 @@ package com.devsuperior.dscommerce.services;
 
 import com.devsuperior.dscommerce.dto.CategoryDTO;
 import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.projections.VersionSummaryProjection;
 import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.util.ETags;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -20,4 +22,10 @@ public class CategoryService {
         List<Category> result = repository.findAll();
         return result.stream().map(x -> new CategoryDTO(x)).toList();
     }
+
+    @Transactional(readOnly = true)
+    public String findAllETag() {
+        VersionSummaryProjection summary = repository.findVersionSummary();
+        return ETags.of("c" + summary.getTotal(), summary.getMaxId(), summary.getVersionSum());
+    }
 }
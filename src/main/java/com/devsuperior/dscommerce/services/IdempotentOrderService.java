@@ -0,0 +1,203 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.entities.IdempotencyRecord;
+import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.repositories.IdempotencyRecordRepository;
+import com.devsuperior.dscommerce.services.cache.LocalCache;
+import com.devsuperior.dscommerce.services.cache.SingleFlight;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Places orders under a client-supplied Idempotency-Key. The key, a hash of the
+ * request and the created order id are written in the same transaction as the
+ * order, so a retry finds them and gets the original order back. Recent
+ * results are also kept in memory, and concurrent requests with the same key
+ * share a single execution. Keys older than the cache TTL are purged from the
+ * table on a schedule, so a key can be reused once it has expired.
+ */
+@Service
+public class IdempotentOrderService implements MetricsSource {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final LocalCache<String, StoredOrder> recent;
+    private final SingleFlight<String, StoredOrder> inFlight = new SingleFlight<>();
+    private final long ttlMillis;
+    private final long purgeIntervalMillis;
+
+    private final LongAdder purged = new LongAdder();
+    private final LongAdder purgeFailures = new LongAdder();
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private IdempotencyRecordRepository recordRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public IdempotentOrderService(@Value("${orders.idempotency.max-size:10000}") int maxSize,
+                                  @Value("${orders.idempotency.ttl-ms:86400000}") long ttlMillis,
+                                  @Value("${orders.idempotency.purge-interval-ms:3600000}") long purgeIntervalMillis) {
+        recent = new LocalCache<>(maxSize, ttlMillis);
+        this.ttlMillis = ttlMillis;
+        this.purgeIntervalMillis = purgeIntervalMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "idempotency-purge");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::purge, purgeIntervalMillis, purgeIntervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private void purge() {
+        try {
+            purgeExpired(Instant.now());
+        } catch (RuntimeException e) {
+            purgeFailures.increment();
+        }
+    }
+
+    int purgeExpired(Instant now) {
+        Instant limit = now.minusMillis(ttlMillis);
+        Integer count = new TransactionTemplate(transactionManager)
+                .execute(status -> recordRepository.deleteCreatedBefore(limit));
+        int result = (count == null) ? 0 : count;
+        purged.add(result);
+        return result;
+    }
+
+    public OrderDTO insert(OrderDTO dto, String key) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new BadRequestException("Idempotency-Key inválida");
+        }
+        User me = userService.authenticated();
+        String scopedKey = me.getId() + ":" + key;
+        String hash = requestHash(dto);
+
+        StoredOrder stored = inFlight.execute(scopedKey,
+                () -> recent.get(scopedKey, () -> findOrCreate(scopedKey, me.getId(), hash, dto)));
+        if (!stored.requestHash.equals(hash)) {
+            throw new ConflictException("Idempotency-Key já usada em outro pedido");
+        }
+        return stored.order;
+    }
+
+    private StoredOrder findOrCreate(String scopedKey, Long clientId, String hash, OrderDTO dto) {
+        StoredOrder existing = findStored(scopedKey);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            return new TransactionTemplate(transactionManager).execute(status -> {
+                OrderDTO order = orderService.insert(dto);
+                recordRepository.saveAndFlush(new IdempotencyRecord(scopedKey, clientId, hash, order.getId(),
+                        Instant.now()));
+                return new StoredOrder(hash, order);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Another instance stored the key first and our order was rolled
+            // back with the failed insert; its order is the one to return.
+            StoredOrder winner = findStored(scopedKey);
+            if (winner == null) {
+                throw e;
+            }
+            return winner;
+        }
+    }
+
+    private StoredOrder findStored(String scopedKey) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> recordRepository.findById(scopedKey)
+                .map(record -> new StoredOrder(record.getRequestHash(), orderService.findById(record.getOrderId())))
+                .orElse(null));
+    }
+
+    private String requestHash(OrderDTO dto) {
+        StringBuilder sb = new StringBuilder();
+        for (OrderItemDTO item : dto.getItems()) {
+            sb.append(item.getProductId()).append(':').append(item.getQuantity()).append(';');
+        }
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(sb.toString().getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIdempotency";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", recent.size());
+        metrics.put("hits", recent.getHits());
+        metrics.put("coalesced", inFlight.getCoalesced());
+        metrics.put("purged", purged.sum());
+        metrics.put("purgeFailures", purgeFailures.sum());
+        return metrics;
+    }
+
+    private static class StoredOrder {
+
+        private final String requestHash;
+        private final OrderDTO order;
+
+        StoredOrder(String requestHash, OrderDTO order) {
+            this.requestHash = requestHash;
+            this.order = order;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+public class MetricsService {
+
+    @Autowired
+    private List<MetricsSource> sources;
+
+    public Map<String, Map<String, Object>> findAll() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (MetricsSource source : sources) {
+            result.put(source.getMetricsName(), source.getMetrics());
+        }
+        return result;
+    }
+}
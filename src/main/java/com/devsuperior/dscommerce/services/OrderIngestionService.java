@@ -0,0 +1,388 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.entities.*;
+import com.devsuperior.dscommerce.events.OrderCreatedEvent;
+import com.devsuperior.dscommerce.repositories.OrderRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Group commit for POST /orders. Callers validate and enqueue their order and
+ * wait; a single writer thread takes up to batch-size orders, waiting at most
+ * max-linger-ms for the batch to fill, and stores them all in one transaction
+ * with batched inserts. Each caller is released once its batch commits. If a
+ * batch fails, its orders are retried one per transaction so that one bad
+ * order does not fail the others. A full queue is rejected with 503, and so is
+ * a caller whose order the writer has not taken up within await-timeout-ms.
+ */
+@Service
+public class OrderIngestionService implements MetricsSource {
+
+    private static final long POLL_MILLIS = 100;
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long maxLingerNanos;
+    private final long offerTimeoutMillis;
+    private final long awaitTimeoutMillis;
+    private final int queueCapacity;
+    private final BlockingQueue<PendingOrder> queue;
+
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder committed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder fallbacks = new LongAdder();
+    private final LongAdder timeouts = new LongAdder();
+    private final LongAdder batchedOrders = new LongAdder();
+    private final LongAdder queueWaitNanos = new LongAdder();
+
+    // Callers hold the read lock from the running check through the offer,
+    // and stop() takes the write lock to clear the flag. Once stop() has it,
+    // nothing more can be enqueued, so the final drain sees every order.
+    private final ReadWriteLock admission = new ReentrantReadWriteLock();
+    private volatile boolean running;
+    private Thread writer;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private ProductRepository productRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private StockReservationService stockService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private OrderOutbox outbox;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public OrderIngestionService(@Value("${orders.ingestion.enabled:false}") boolean enabled,
+                                 @Value("${orders.ingestion.batch-size:50}") int batchSize,
+                                 @Value("${orders.ingestion.max-linger-ms:5}") long maxLingerMillis,
+                                 @Value("${orders.ingestion.queue-capacity:1000}") int queueCapacity,
+                                 @Value("${orders.ingestion.offer-timeout-ms:100}") long offerTimeoutMillis,
+                                 @Value("${orders.ingestion.await-timeout-ms:5000}") long awaitTimeoutMillis) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.maxLingerNanos = TimeUnit.MILLISECONDS.toNanos(maxLingerMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.awaitTimeoutMillis = awaitTimeoutMillis;
+        this.queueCapacity = queueCapacity;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || running) {
+            return;
+        }
+        running = true;
+        writer = new Thread(this::run, "order-ingestion");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @PreDestroy
+    public synchronized void stop() throws InterruptedException {
+        admission.writeLock().lock();
+        try {
+            running = false;
+        } finally {
+            admission.writeLock().unlock();
+        }
+        if (writer != null) {
+            writer.join(TimeUnit.SECONDS.toMillis(10));
+            writer = null;
+        }
+        List<PendingOrder> left = new ArrayList<>();
+        queue.drainTo(left);
+        for (PendingOrder pending : left) {
+            fail(pending, new ServiceUnavailableException("Recebimento de pedidos indisponível"));
+        }
+    }
+
+    public OrderDTO insert(OrderDTO dto) {
+        PendingOrder pending = new PendingOrder(dto, userService.authenticated(), Instant.now());
+        boolean accepted;
+        admission.readLock().lock();
+        try {
+            if (!running) {
+                throw new ServiceUnavailableException("Recebimento de pedidos indisponível");
+            }
+            accepted = queue.offer(pending, offerTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            accepted = false;
+        } finally {
+            admission.readLock().unlock();
+        }
+        if (!accepted) {
+            rejected.increment();
+            throw new ServiceUnavailableException("Fila de pedidos cheia, tente novamente");
+        }
+        submitted.increment();
+        return await(pending);
+    }
+
+    private void run() {
+        List<PendingOrder> batch = new ArrayList<>(batchSize);
+        while (running) {
+            try {
+                PendingOrder first = queue.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + maxLingerNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Throwable e) {
+                // Anything escaping here would end the writer thread and
+                // leave every later caller queued with nobody to serve them.
+                for (PendingOrder pending : batch) {
+                    fail(pending, e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void write(List<PendingOrder> batch) {
+        long now = System.nanoTime();
+        for (PendingOrder pending : batch) {
+            queueWaitNanos.add(now - pending.enqueuedAt);
+        }
+        batches.increment();
+        batchedOrders.add(batch.size());
+
+        try {
+            commit(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                fail(batch.get(0), e);
+                return;
+            }
+            fallbacks.increment();
+            for (PendingOrder pending : batch) {
+                try {
+                    commit(List.of(pending));
+                } catch (RuntimeException single) {
+                    fail(pending, single);
+                }
+            }
+        }
+    }
+
+    private void commit(List<PendingOrder> batch) {
+        Map<PendingOrder, Order> orders = new TransactionTemplate(transactionManager).execute(status -> {
+            Set<Long> productIds = new HashSet<>();
+            for (PendingOrder pending : batch) {
+                for (OrderItemDTO item : pending.dto.getItems()) {
+                    productIds.add(item.getProductId());
+                }
+            }
+            Map<Long, Product> products = new HashMap<>();
+            for (Product product : productRepository.findAllById(productIds)) {
+                products.put(product.getId(), product);
+            }
+
+            Map<PendingOrder, Order> result = new LinkedHashMap<>();
+            for (PendingOrder pending : batch) {
+                if (pending.result.isDone() || !pending.claim()) {
+                    continue;
+                }
+                Order order = newOrder(pending, products);
+                if (order != null) {
+                    result.put(pending, order);
+                }
+            }
+            if (result.isEmpty()) {
+                return result;
+            }
+            repository.saveAll(result.values());
+            for (Order order : result.values()) {
+                outbox.created(order);
+                eventPublisher.publishEvent(new OrderCreatedEvent(order.getId(), order.getMoment()));
+            }
+            return result;
+        });
+        orders.forEach((pending, order) -> {
+            committed.increment();
+            pending.result.complete(new OrderDTO(order));
+        });
+    }
+
+    private Order newOrder(PendingOrder pending, Map<Long, Product> products) {
+        Set<Long> missing = new LinkedHashSet<>();
+        for (OrderItemDTO item : pending.dto.getItems()) {
+            if (!products.containsKey(item.getProductId())) {
+                missing.add(item.getProductId());
+            }
+        }
+        if (!missing.isEmpty()) {
+            fail(pending, new ResourceNotFoundException("Produtos não encontrados: " + missing));
+            return null;
+        }
+
+        Map<Long, Integer> quantities = OrderService.quantitiesOf(pending.dto.getItems());
+        List<Long> unavailable = stockService.reserve(quantities);
+        if (!unavailable.isEmpty()) {
+            fail(pending, new ConflictException("Estoque insuficiente para os produtos: " + unavailable));
+            return null;
+        }
+
+        Order order = new Order(null, pending.moment, OrderStatus.WAITING_PAYMENT, pending.client, null);
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            order.getItems().add(new OrderItem(order, product, line.getValue(), product.getPrice()));
+        }
+        return order;
+    }
+
+    private void fail(PendingOrder pending, Throwable e) {
+        if (pending.result.completeExceptionally(e)) {
+            failed.increment();
+        }
+    }
+
+    private OrderDTO await(PendingOrder pending) {
+        try {
+            return pending.result.get(awaitTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            throw unwrap(e.getCause());
+        } catch (TimeoutException e) {
+            return abandon(pending);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return abandon(pending);
+        }
+    }
+
+    // Only an order the writer has not claimed can be given up: the writer
+    // skips it, so it is never stored. A claimed order may already be in a
+    // committing transaction, so the caller waits for that outcome instead of
+    // answering 503 for an order that is then stored anyway.
+    private OrderDTO abandon(PendingOrder pending) {
+        if (pending.state.compareAndSet(PendingOrder.QUEUED, PendingOrder.ABANDONED)) {
+            ServiceUnavailableException e = new ServiceUnavailableException("Tempo de espera do pedido esgotado, tente novamente");
+            if (pending.result.completeExceptionally(e)) {
+                timeouts.increment();
+                throw e;
+            }
+        }
+        try {
+            return pending.result.join();
+        } catch (CompletionException done) {
+            throw unwrap(done.getCause());
+        }
+    }
+
+    private static RuntimeException unwrap(Throwable cause) {
+        return (cause instanceof RuntimeException e) ? e : new IllegalStateException(cause);
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderIngestion";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.sum();
+        long orderCount = batchedOrders.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("queueDepth", queue.size());
+        metrics.put("queueCapacity", queueCapacity);
+        metrics.put("submitted", submitted.sum());
+        metrics.put("rejected", rejected.sum());
+        metrics.put("timeouts", timeouts.sum());
+        metrics.put("committed", committed.sum());
+        metrics.put("failed", failed.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("fallbacks", fallbacks.sum());
+        metrics.put("avgBatchSize", batchCount == 0 ? 0.0 : (double) orderCount / batchCount);
+        metrics.put("avgQueueWaitMs", orderCount == 0 ? 0.0 : queueWaitNanos.sum() / 1_000_000.0 / orderCount);
+        return metrics;
+    }
+
+    private static class PendingOrder {
+
+        private static final int QUEUED = 0;
+        private static final int CLAIMED = 1;
+        private static final int ABANDONED = 2;
+
+        private final OrderDTO dto;
+        private final User client;
+        private final Instant moment;
+        private final long enqueuedAt = System.nanoTime();
+        private final CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+        private final AtomicInteger state = new AtomicInteger(QUEUED);
+
+        PendingOrder(OrderDTO dto, User client, Instant moment) {
+            this.dto = dto;
+            this.client = client;
+            this.moment = moment;
+        }
+
+        // Still true on the one-by-one retry after a failed batch, which
+        // works on orders the writer has already claimed.
+        boolean claim() {
+            return state.compareAndSet(QUEUED, CLAIMED) || state.get() == CLAIMED;
+        }
+    }
+}
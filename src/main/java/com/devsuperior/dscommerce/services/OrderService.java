@@ -1,26 +1,44 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.OrderDTO;
 import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.dto.OrderSummaryDTO;
 import com.devsuperior.dscommerce.entities.*;
-import com.devsuperior.dscommerce.repositories.OrderItemRepository;
+import com.devsuperior.dscommerce.events.OrderCreatedEvent;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
+import com.devsuperior.dscommerce.util.CursorCodec;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class OrderService {
 
-    @Autowired
-    private OrderRepository repository;
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final Instant NO_MOMENT = Instant.parse("9999-12-31T23:59:59Z");
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private OrderRepository repository;
 
     @Autowired
     ProductRepository productRepository;
@@ -31,14 +49,59 @@ public class OrderService {
     @Autowired
     AuthService authService;
 
+    @Autowired
+    StockReservationService stockService;
+
+    @Autowired
+    private OrderOutbox outbox;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     @Transactional(readOnly = true)
     public OrderDTO findById(Long id) {
-        Order order = repository.findById(id).orElseThrow(
+        Order order = repository.findWithDetailsById(id).orElseThrow(
                 () -> new ResourceNotFoundException("Recurso não encontrado"));
         authService.validateSelfOrAdmin(order.getClient().getId());
         return new OrderDTO(order);
     }
 
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> findMine(String after, int size) {
+        User me = userService.authenticated();
+        return findByClient(me.getId(), after, size);
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<OrderSummaryDTO> findByClient(Long clientId, String after, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        Instant lastMoment = NO_MOMENT;
+        Long lastId = Long.MAX_VALUE;
+        if (!after.isBlank()) {
+            try {
+                String[] parts = CursorCodec.decode(after, 2);
+                lastMoment = Instant.parse(parts[0]);
+                lastId = Long.valueOf(parts[1]);
+            } catch (IllegalArgumentException | DateTimeParseException e) {
+                throw new BadRequestException("Cursor inválido");
+            }
+        }
+
+        List<OrderSummaryDTO> result = repository.searchByClientBefore(clientId, lastMoment, lastId,
+                PageRequest.of(0, limit + 1));
+
+        String nextCursor = null;
+        if (result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+            OrderSummaryDTO last = result.get(limit - 1);
+            nextCursor = CursorCodec.encode(last.getMoment().toString(), String.valueOf(last.getId()));
+        }
+        return new CursorPageDTO<>(result, limit, nextCursor);
+    }
+
     @Transactional
     public OrderDTO insert(OrderDTO dto) {
 
@@ -50,15 +113,83 @@ public class OrderService {
         User user = userService.authenticated();
         order.setClient(user);
 
-        for (OrderItemDTO itemDTO : dto.getItems()) {
-            Product product = productRepository.getReferenceById(itemDTO.getProductId());
-            OrderItem item = new OrderItem(order, product, itemDTO.getQuantity(), product.getPrice());
+        Map<Long, Product> products = findProducts(dto.getItems());
+        Map<Long, Integer> quantities = quantitiesOf(dto.getItems());
+        reserveStock(quantities);
+        for (Map.Entry<Long, Integer> line : quantities.entrySet()) {
+            Product product = products.get(line.getKey());
+            OrderItem item = new OrderItem(order, product, line.getValue(), product.getPrice());
             order.getItems().add(item);
         }
 
         repository.save(order);
-        orderItemRepository.saveAll(order.getItems());
+        outbox.created(order);
+        eventPublisher.publishEvent(new OrderCreatedEvent(order.getId(), order.getMoment()));
+
+        return new OrderDTO(order);
+    }
 
+    @Transactional
+    public OrderDTO cancel(Long id) {
+        Order order = repository.findWithDetailsById(id).orElseThrow(
+                () -> new ResourceNotFoundException("Recurso não encontrado"));
+        authService.validateSelfOrAdmin(order.getClient().getId());
+        if (repository.updateStatus(id, OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED) == 0) {
+            throw new ConflictException("Somente pedidos aguardando pagamento podem ser cancelados");
+        }
+        stockService.release(quantitiesOf(order));
+        outbox.statusChanged(List.of(id), OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED);
+        // The conditional UPDATE already stored the status; detached, the
+        // entity is not flushed again when it is set for the response.
+        entityManager.detach(order);
+        order.setStatus(OrderStatus.CANCELED);
         return new OrderDTO(order);
     }
+
+    private Map<Long, Integer> quantitiesOf(Order order) {
+        Map<Long, Integer> quantities = new HashMap<>();
+        for (OrderItem item : order.getItems()) {
+            quantities.merge(item.getProduct().getId(), item.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    // Lines for the same product become one: an order item is keyed by order
+    // and product, so a second line would not be stored, yet its units would
+    // still be reserved.
+    static Map<Long, Integer> quantitiesOf(List<OrderItemDTO> items) {
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        for (OrderItemDTO itemDTO : items) {
+            quantities.merge(itemDTO.getProductId(), itemDTO.getQuantity(), Integer::sum);
+        }
+        return quantities;
+    }
+
+    private void reserveStock(Map<Long, Integer> quantities) {
+        List<Long> unavailable = stockService.reserve(quantities);
+        if (!unavailable.isEmpty()) {
+            throw new ConflictException("Estoque insuficiente para os produtos: " + unavailable);
+        }
+    }
+
+    private Map<Long, Product> findProducts(List<OrderItemDTO> items) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (OrderItemDTO itemDTO : items) {
+            ids.add(itemDTO.getProductId());
+        }
+        Map<Long, Product> products = new HashMap<>();
+        for (Product product : productRepository.findAllById(ids)) {
+            products.put(product.getId(), product);
+        }
+        List<Long> missing = new ArrayList<>();
+        for (Long id : ids) {
+            if (!products.containsKey(id)) {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Produtos não encontrados: " + missing);
+        }
+        return products;
+    }
 }
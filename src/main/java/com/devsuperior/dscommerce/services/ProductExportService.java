@@ -0,0 +1,101 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.projections.ProductExportProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.util.CsvLine;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Full catalog export. Rows come from a forward-only cursor, one per product
+ * and category, and are grouped back into products as they arrive, so only
+ * the product being written is held in memory.
+ */
+@Service
+public class ProductExportService {
+
+    private static final int FLUSH_INTERVAL = 500;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Transactional(readOnly = true)
+    public void exportNdjson(OutputStream output) throws IOException {
+        export(output, false);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportCsv(OutputStream output) throws IOException {
+        export(output, true);
+    }
+
+    private void export(OutputStream output, boolean csv) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+        if (csv) {
+            writer.write(CsvLine.format("id", "name", "description", "price", "imgUrl", "categories"));
+            writer.write('\n');
+        }
+
+        try (Stream<ProductExportProjection> rows = repository.streamAllForExport()) {
+            ProductDTO current = null;
+            long written = 0;
+            Iterator<ProductExportProjection> it = rows.iterator();
+            while (it.hasNext()) {
+                ProductExportProjection row = it.next();
+                if (current == null || !current.getId().equals(row.getId())) {
+                    if (current != null) {
+                        write(writer, current, csv);
+                        if (++written % FLUSH_INTERVAL == 0) {
+                            writer.flush();
+                            entityManager.clear();
+                        }
+                    }
+                    current = new ProductDTO(row.getId(), row.getName(), row.getDescription(), row.getPrice(),
+                            row.getImgUrl());
+                }
+                if (row.getCategoryId() != null) {
+                    current.getCategories().add(new CategoryDTO(row.getCategoryId(), row.getCategoryName()));
+                }
+            }
+            if (current != null) {
+                write(writer, current, csv);
+            }
+        }
+        writer.flush();
+    }
+
+    private void write(Writer writer, ProductDTO dto, boolean csv) throws IOException {
+        if (csv) {
+            String categories = dto.getCategories().stream()
+                    .map(c -> String.valueOf(c.getId()))
+                    .collect(Collectors.joining(";"));
+            writer.write(CsvLine.format(dto.getId(), dto.getName(), dto.getDescription(), dto.getPrice(),
+                    dto.getImgUrl(), categories));
+        } else {
+            writer.write(objectMapper.writeValueAsString(dto));
+        }
+        writer.write('\n');
+    }
+}
@@ -0,0 +1,335 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.ImportErrorDTO;
+import com.devsuperior.dscommerce.dto.ImportResultDTO;
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.util.CsvLine;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Bulk product load. Input is read one line at a time and written in JDBC
+ * batches, each in its own transaction, so memory use depends on the batch
+ * size rather than on the file. When a batch fails to write, its rows are
+ * written again one at a time, so only the rows the database rejects are
+ * reported, each with its own error.
+ */
+@Service
+public class ProductImportService {
+
+    private static final String INSERT_PRODUCT =
+            "INSERT INTO tb_product (id, name, description, price, img_url, version) VALUES (?, ?, ?, ?, ?, 0)";
+    private static final String INSERT_PRODUCT_CATEGORY =
+            "INSERT INTO tb_product_category (product_id, category_id) VALUES (?, ?)";
+    private static final int MAX_REPORTED_ERRORS = 1000;
+    // Bounds how far an unbalanced quote can pull following lines into one record.
+    private static final int MAX_CSV_RECORD_LINES = 100;
+    // Must match the @SequenceGenerator on Product: with the pooled-lo
+    // optimizer each value read from the sequence opens a block of this many ids.
+    private static final String ID_SEQUENCE = "seq_product";
+    private static final int ID_BLOCK_SIZE = 50;
+
+    private final int batchSize;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private Validator validator;
+
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    public ProductImportService(@Value("${catalog.import.batch-size:500}") int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    public ImportResultDTO importNdjson(Reader input) {
+        return run(input, false);
+    }
+
+    public ImportResultDTO importCsv(Reader input) {
+        return run(input, true);
+    }
+
+    private ImportResultDTO run(Reader input, boolean csv) {
+        long start = System.nanoTime();
+        ImportState state = new ImportState(categoryRepository.findAll().stream()
+                .map(Category::getId).collect(Collectors.toSet()));
+        List<Row> batch = new ArrayList<>(batchSize);
+
+        try (BufferedReader reader = new BufferedReader(input)) {
+            Map<String, Integer> header = null;
+            long lineNumber = 0;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                long firstLine = ++lineNumber;
+                if (csv) {
+                    String next;
+                    while (!CsvLine.isComplete(line) && lineNumber - firstLine < MAX_CSV_RECORD_LINES - 1
+                            && (next = reader.readLine()) != null) {
+                        lineNumber++;
+                        line = line + "\n" + next;
+                    }
+                }
+                if (line.isBlank()) {
+                    continue;
+                }
+                if (csv && header == null) {
+                    header = parseHeader(line);
+                    continue;
+                }
+                state.received++;
+                Row row = parse(firstLine, line, header, state);
+                if (row != null) {
+                    batch.add(row);
+                    if (batch.size() == batchSize) {
+                        write(batch, state);
+                        batch.clear();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (!batch.isEmpty()) {
+            write(batch, state);
+        }
+
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+        double rowsPerSecond = state.imported * 1000.0 / Math.max(1, elapsedMillis);
+        ImportResultDTO result = new ImportResultDTO(state.received, state.imported, state.failed,
+                elapsedMillis, rowsPerSecond);
+        result.getErrors().addAll(state.errors);
+        return result;
+    }
+
+    private Map<String, Integer> parseHeader(String line) {
+        Map<String, Integer> header = new HashMap<>();
+        List<String> columns = CsvLine.parse(line);
+        for (int i = 0; i < columns.size(); i++) {
+            header.put(columns.get(i).trim().toLowerCase(), i);
+        }
+        if (!header.containsKey("name") || !header.containsKey("price")) {
+            throw new BadRequestException("Cabeçalho CSV deve conter as colunas name e price");
+        }
+        return header;
+    }
+
+    private Row parse(long lineNumber, String line, Map<String, Integer> header, ImportState state) {
+        ProductDTO dto;
+        try {
+            dto = (header == null) ? objectMapper.readValue(line, ProductDTO.class) : fromCsv(line, header);
+        } catch (JsonProcessingException e) {
+            state.reject(lineNumber, "JSON inválido");
+            return null;
+        } catch (IllegalArgumentException e) {
+            state.reject(lineNumber, "Linha CSV inválida");
+            return null;
+        }
+
+        Set<ConstraintViolation<ProductDTO>> violations = validator.validate(dto);
+        if (!violations.isEmpty()) {
+            String message = violations.stream()
+                    .map(v -> v.getPropertyPath() + ": " + v.getMessage())
+                    .sorted()
+                    .collect(Collectors.joining("; "));
+            state.reject(lineNumber, message);
+            return null;
+        }
+        for (CategoryDTO category : dto.getCategories()) {
+            if (!state.categoryIds.contains(category.getId())) {
+                state.reject(lineNumber, "Categoria inexistente: " + category.getId());
+                return null;
+            }
+        }
+        return new Row(lineNumber, dto);
+    }
+
+    private ProductDTO fromCsv(String line, Map<String, Integer> header) {
+        List<String> fields = CsvLine.parse(line);
+        String price = field(fields, header, "price");
+        ProductDTO dto = new ProductDTO(null, field(fields, header, "name"), field(fields, header, "description"),
+                price == null ? null : Double.valueOf(price), field(fields, header, "imgurl"));
+        String categories = field(fields, header, "categories");
+        if (categories != null) {
+            for (String id : categories.split(";")) {
+                if (!id.isBlank()) {
+                    dto.getCategories().add(new CategoryDTO(Long.valueOf(id.trim()), null));
+                }
+            }
+        }
+        return dto;
+    }
+
+    private String field(List<String> fields, Map<String, Integer> header, String column) {
+        Integer index = header.get(column);
+        if (index == null || index >= fields.size() || fields.get(index).isEmpty()) {
+            return null;
+        }
+        return fields.get(index);
+    }
+
+    private void write(List<Row> batch, ImportState state) {
+        // Sequence values are not rolled back, so ids taken here stay ours
+        // and the row-by-row retry below can reuse them.
+        List<Long> ids = jdbcTemplate.execute((ConnectionCallback<List<Long>>) con -> allocateIds(con, batch.size()));
+        try {
+            insert(batch, ids);
+            state.imported += batch.size();
+        } catch (DataAccessException e) {
+            for (int i = 0; i < batch.size(); i++) {
+                Row row = batch.get(i);
+                try {
+                    insert(List.of(row), List.of(ids.get(i)));
+                    state.imported++;
+                } catch (DataAccessException rowError) {
+                    state.reject(row.line, "Falha ao gravar produto: " + describe(rowError));
+                }
+            }
+        }
+    }
+
+    // First line of the driver message: it names the column and the problem
+    // but leaves out the statement text that follows.
+    private static String describe(DataAccessException e) {
+        String message = String.valueOf(e.getMostSpecificCause().getMessage());
+        int end = message.indexOf('\n');
+        return end < 0 ? message : message.substring(0, end);
+    }
+
+    private void insert(List<Row> rows, List<Long> ids) {
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+                insertBatch(con, rows, ids);
+                return null;
+            });
+            for (int i = 0; i < rows.size(); i++) {
+                ProductDTO dto = rows.get(i).dto;
+                ProductDTO saved = new ProductDTO(ids.get(i), dto.getName(), dto.getDescription(),
+                        dto.getPrice(), dto.getImgUrl());
+                saved.getCategories().addAll(dto.getCategories());
+                eventPublisher.publishEvent(new ProductChangedEvent(saved.getId(), saved));
+            }
+        });
+    }
+
+    private void insertBatch(Connection con, List<Row> batch, List<Long> ids) throws SQLException {
+        try (PreparedStatement ps = con.prepareStatement(INSERT_PRODUCT)) {
+            for (int i = 0; i < batch.size(); i++) {
+                ProductDTO dto = batch.get(i).dto;
+                ps.setLong(1, ids.get(i));
+                ps.setString(2, dto.getName());
+                ps.setString(3, dto.getDescription());
+                ps.setDouble(4, dto.getPrice());
+                ps.setString(5, dto.getImgUrl());
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        }
+        try (PreparedStatement ps = con.prepareStatement(INSERT_PRODUCT_CATEGORY)) {
+            for (int i = 0; i < batch.size(); i++) {
+                Set<Long> categoryIds = new LinkedHashSet<>();
+                for (CategoryDTO category : batch.get(i).dto.getCategories()) {
+                    categoryIds.add(category.getId());
+                }
+                for (Long categoryId : categoryIds) {
+                    ps.setLong(1, ids.get(i));
+                    ps.setLong(2, categoryId);
+                    ps.addBatch();
+                }
+            }
+            ps.executeBatch();
+        }
+    }
+
+    private List<Long> allocateIds(Connection con, int count) throws SQLException {
+        String nextValue = entityManagerFactory.unwrap(SessionFactoryImplementor.class).getJdbcServices()
+                .getDialect().getSequenceSupport().getSequenceNextValString(ID_SEQUENCE);
+        List<Long> ids = new ArrayList<>(count);
+        try (PreparedStatement ps = con.prepareStatement(nextValue)) {
+            while (ids.size() < count) {
+                try (ResultSet rs = ps.executeQuery()) {
+                    rs.next();
+                    long low = rs.getLong(1);
+                    for (long id = low; id < low + ID_BLOCK_SIZE && ids.size() < count; id++) {
+                        ids.add(id);
+                    }
+                }
+            }
+        }
+        return ids;
+    }
+
+    private static class Row {
+
+        private final long line;
+        private final ProductDTO dto;
+
+        Row(long line, ProductDTO dto) {
+            this.line = line;
+            this.dto = dto;
+        }
+    }
+
+    private static class ImportState {
+
+        private final Set<Long> categoryIds;
+        private final List<ImportErrorDTO> errors = new ArrayList<>();
+        private long received;
+        private long imported;
+        private long failed;
+
+        ImportState(Set<Long> categoryIds) {
+            this.categoryIds = categoryIds;
+        }
+
+        void reject(long line, String message) {
+            failed++;
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add(new ImportErrorDTO(line, message));
+            }
+        }
+    }
+}
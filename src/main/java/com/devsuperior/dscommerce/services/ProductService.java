@@ -1,39 +1,235 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.BulkDeleteResultDTO;
 import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CursorPageDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductFilterDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.ProductPatchDTO;
+import com.devsuperior.dscommerce.dto.SliceDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.repositories.OrderItemRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.cache.CachedJson;
+import com.devsuperior.dscommerce.services.cache.CatalogReadCoalescer;
+import com.devsuperior.dscommerce.services.cache.ProductCache;
+import com.devsuperior.dscommerce.services.cache.ProductCountCache;
+import com.devsuperior.dscommerce.services.cache.ProductJsonCache;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+import com.devsuperior.dscommerce.services.exceptions.UnprocessableEntityException;
+import com.devsuperior.dscommerce.services.search.ProductFacetIndex;
+import com.devsuperior.dscommerce.services.search.ProductSearchIndex;
+import com.devsuperior.dscommerce.services.search.ProductSuggestIndex;
+import com.devsuperior.dscommerce.util.CursorCodec;
+import com.devsuperior.dscommerce.util.ETags;
 import jakarta.persistence.EntityNotFoundException;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.support.PageableExecutionUtils;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Service
 public class ProductService {
 
+    private static final int MAX_CURSOR_PAGE_SIZE = 100;
+    private static final int MAX_SUGGESTIONS = 20;
+    private static final int MAX_IDS = 100;
+    private static final int MAX_DELETE_IDS = 1000;
+    private static final int DELETE_BATCH_SIZE = 100;
+    private static final String CONFLICT_MESSAGE = "Produto alterado por outra requisição";
+
     @Autowired
     private ProductRepository repository;
 
-    @Transactional(readOnly = true)
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    @Autowired
+    private ProductCache productCache;
+
+    @Autowired
+    private ProductCountCache countCache;
+
+    @Autowired
+    private CatalogReadCoalescer coalescer;
+
+    @Autowired
+    private ProductJsonCache jsonCache;
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public ProductDTO findById(Long id) {
-        Product product = repository.findById(id).orElseThrow(
-                () -> new ResourceNotFoundException("Recurso não encontrado"));
-        return new ProductDTO(product);
+        return productCache.get(id, () -> coalescer.product(id, () -> {
+            Product product = repository.findWithCategoriesById(id).orElseThrow(
+                    () -> new ResourceNotFoundException("Recurso não encontrado"));
+            return new ProductDTO(product);
+        }));
+    }
+
+    public List<ProductDTO> findAllByIds(List<Long> ids) {
+        Set<Long> distinct = new LinkedHashSet<>(ids);
+        if (distinct.size() > MAX_IDS) {
+            throw new BadRequestException("Máximo de " + MAX_IDS + " ids por requisição");
+        }
+        Map<Long, ProductDTO> found = productCache.getAll(distinct, missing -> {
+            Map<Long, ProductDTO> loaded = new HashMap<>();
+            for (Product product : repository.findWithCategoriesByIdIn(missing)) {
+                loaded.put(product.getId(), new ProductDTO(product));
+            }
+            return loaded;
+        });
+        return new ArrayList<>(found.values());
     }
 
-    @Transactional(readOnly = true)
     public Page<ProductMinDTO> findAll(String name, Pageable pageable) {
-        Page<Product> result = repository.searchByName(name, pageable);
-        return result.map(x -> new ProductMinDTO(x));
+        if (isIndexedSearch(name, pageable)) {
+            return searchIndex.search(name, pageable);
+        }
+        return coalescer.listing(name, pageable, () -> {
+            Slice<ProductMinDTO> result = repository.searchByName(name, pageable);
+            return PageableExecutionUtils.getPage(result.getContent(), pageable,
+                    () -> countCache.get(name, () -> repository.countByName(name)));
+        });
+    }
+
+    public CachedJson findByIdJson(Long id) {
+        return jsonCache.product(id, () -> findById(id));
+    }
+
+    public CachedJson findAllJson(String name, Pageable pageable) {
+        return jsonCache.listing(name, pageable, () -> findAll(name, pageable));
+    }
+
+    public String findByIdETag(Long id) {
+        CachedJson cached = jsonCache.getProductIfPresent(id);
+        if (cached != null) {
+            return cached.getEtag();
+        }
+        return repository.findVersionById(id).map(version -> jsonCache.productETag(id, version)).orElse(null);
+    }
+
+    public String findAllETag() {
+        return jsonCache.listingETag();
+    }
+
+    public String productETag(ProductDTO dto) {
+        return jsonCache.productETag(dto.getId(), dto.getVersion());
+    }
+
+    @Transactional(readOnly = true)
+    public SliceDTO<ProductMinDTO> findAllSlice(String name, Pageable pageable) {
+        if (isIndexedSearch(name, pageable)) {
+            return new SliceDTO<>(searchIndex.search(name, pageable));
+        }
+        return new SliceDTO<>(repository.searchByName(name, pageable));
+    }
+
+    @Transactional(readOnly = true)
+    public CursorPageDTO<ProductMinDTO> findAllAfter(String name, String after, String sort, int size) {
+        int limit = Math.max(1, Math.min(size, MAX_CURSOR_PAGE_SIZE));
+        String sortKey = sort;
+        String lastValue = null;
+        Long lastId = 0L;
+        if (!after.isBlank()) {
+            try {
+                String[] parts = CursorCodec.decode(after, 3);
+                sortKey = parts[0];
+                lastValue = parts[1];
+                lastId = Long.valueOf(parts[2]);
+            } catch (IllegalArgumentException e) {
+                throw new BadRequestException("Cursor inválido");
+            }
+        }
+
+        Pageable window = PageRequest.of(0, limit + 1);
+        List<ProductMinDTO> result = switch (sortKey) {
+            case "id" -> repository.searchByNameAfterId(name, lastId, window);
+            case "name" -> repository.searchByNameAfterName(name, lastValue == null ? "" : lastValue, lastId, window);
+            case "price" -> repository.searchByNameAfterPrice(name, parsePrice(lastValue), lastId, window);
+            default -> throw new BadRequestException("Ordenação não suportada: " + sortKey);
+        };
+
+        String nextCursor = null;
+        if (result.size() > limit) {
+            result = new ArrayList<>(result.subList(0, limit));
+            ProductMinDTO last = result.get(limit - 1);
+            String value = switch (sortKey) {
+                case "name" -> last.getName();
+                case "price" -> String.valueOf(last.getPrice());
+                default -> "";
+            };
+            nextCursor = CursorCodec.encode(sortKey, value, String.valueOf(last.getId()));
+        }
+        return new CursorPageDTO<>(result, limit, nextCursor);
+    }
+
+    public ProductFilterDTO filter(String name, List<Long> categoryIds, Double minPrice, Double maxPrice,
+                                   Pageable pageable) {
+        if (minPrice != null && maxPrice != null && minPrice > maxPrice) {
+            throw new BadRequestException("Faixa de preço inválida");
+        }
+        for (Sort.Order order : pageable.getSort()) {
+            if (!ProductFacetIndex.SORT_PROPERTIES.contains(order.getProperty())) {
+                throw new BadRequestException("Ordenação não suportada: " + order.getProperty());
+            }
+        }
+        if (!facetIndex.isReady()) {
+            throw new ServiceUnavailableException("Índice de filtros em construção, tente novamente");
+        }
+        return facetIndex.filter(name, categoryIds, minPrice, maxPrice, pageable);
+    }
+
+    public List<ProductMinDTO> suggest(String text, int limit) {
+        int max = Math.max(1, Math.min(limit, MAX_SUGGESTIONS));
+        if (text.isBlank()) {
+            return List.of();
+        }
+        if (suggestIndex.isReady()) {
+            return suggestIndex.suggest(text, max);
+        }
+        return repository.searchByNameAfterId(text, 0L, PageRequest.of(0, max));
     }
 
     @Transactional
@@ -42,45 +238,200 @@ public class ProductService {
         Product entity = new Product();
         copyDtoEntity(dto, entity);
         entity = repository.save(entity);
-        return new ProductDTO(entity);
+        return publishChange(new ProductDTO(entity));
     }
 
     @Transactional
     public ProductDTO update(Long id, ProductDTO dto) {
+        return update(id, dto, null);
+    }
+
+    @Transactional
+    public ProductDTO update(Long id, ProductDTO dto, String ifMatch) {
         try {
             Product entity = repository.getReferenceById(id);
+            checkVersion(entity, ifMatch, dto.getVersion());
             copyDtoEntity(dto, entity);
-            entity = repository.save(entity);
-            return new ProductDTO(entity);
+            entity = repository.saveAndFlush(entity);
+            return publishChange(new ProductDTO(entity));
         } catch (EntityNotFoundException e) {
             throw new ResourceNotFoundException("Recurso não encontrado");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConflictException(CONFLICT_MESSAGE);
+        }
+    }
+
+    @Transactional
+    public ProductDTO patch(Long id, ProductPatchDTO dto) {
+        return patch(id, dto, null);
+    }
 
+    @Transactional
+    public ProductDTO patch(Long id, ProductPatchDTO dto, String ifMatch) {
+        try {
+            Product entity = repository.getReferenceById(id);
+            checkVersion(entity, ifMatch, null);
+            if (dto.getName() != null) {
+                entity.setName(dto.getName());
+            }
+            if (dto.getDescription() != null) {
+                entity.setDescription(dto.getDescription());
+            }
+            if (dto.getPrice() != null) {
+                entity.setPrice(dto.getPrice());
+            }
+            if (dto.getImgUrl() != null) {
+                entity.setImgUrl(dto.getImgUrl());
+            }
+            if (dto.getCategories() != null) {
+                copyCategories(dto.getCategories(), entity);
+            }
+            entity = repository.saveAndFlush(entity);
+            return publishChange(new ProductDTO(entity));
+        } catch (EntityNotFoundException e) {
+            throw new ResourceNotFoundException("Recurso não encontrado");
+        } catch (ObjectOptimisticLockingFailureException e) {
+            throw new ConflictException(CONFLICT_MESSAGE);
         }
     }
 
-    @Transactional(propagation = Propagation.SUPPORTS)
+    @Transactional
     public void delete(Long id) {
-        if (!repository.existsById(id)) {
+        int deleted;
+        try {
+            deleted = repository.deleteOneById(id);
+        } catch (DataIntegrityViolationException e) {
+            throw new DatabaseException("Falha de integridade referencial");
+        }
+        if (deleted == 0) {
             throw new ResourceNotFoundException("Recurso não encontrado");
         }
+        eventPublisher.publishEvent(new ProductChangedEvent(id, null));
+    }
+
+    public BulkDeleteResultDTO deleteAll(List<Long> ids) {
+        List<Long> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        if (distinct.size() > MAX_DELETE_IDS) {
+            throw new BadRequestException("Máximo de " + MAX_DELETE_IDS + " ids por requisição");
+        }
+        BulkDeleteResultDTO result = new BulkDeleteResultDTO();
+        for (int from = 0; from < distinct.size(); from += DELETE_BATCH_SIZE) {
+            List<Long> batch = distinct.subList(from, Math.min(from + DELETE_BATCH_SIZE, distinct.size()));
+            result.addAll(deleteBatch(batch));
+        }
+        return result;
+    }
+
+    // Each batch commits on its own. Products still referenced by order items
+    // are left out up front; if an order grabs one between that check and the
+    // delete, the batch rolls back and is settled one id at a time.
+    private BulkDeleteResultDTO deleteBatch(List<Long> ids) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
         try {
-            repository.deleteById(id);
+            return transaction.execute(status -> {
+                BulkDeleteResultDTO result = new BulkDeleteResultDTO();
+                Set<Long> existing = new HashSet<>(repository.findExistingIds(ids));
+                Set<Long> referenced = existing.isEmpty() ? Set.of()
+                        : new HashSet<>(orderItemRepository.findReferencedProductIds(existing));
+                for (Long id : ids) {
+                    if (!existing.contains(id)) {
+                        result.getNotFound().add(id);
+                    } else if (referenced.contains(id)) {
+                        result.getBlocked().add(id);
+                    } else {
+                        result.getDeleted().add(id);
+                    }
+                }
+                if (!result.getDeleted().isEmpty()) {
+                    repository.deleteAllByIdIn(result.getDeleted());
+                    for (Long id : result.getDeleted()) {
+                        eventPublisher.publishEvent(new ProductChangedEvent(id, null));
+                    }
+                }
+                return result;
+            });
         } catch (DataIntegrityViolationException e) {
-            throw new DatabaseException("Falha de integridade referencial");
+            BulkDeleteResultDTO result = new BulkDeleteResultDTO();
+            for (Long id : ids) {
+                try {
+                    transaction.executeWithoutResult(status -> delete(id));
+                    result.getDeleted().add(id);
+                } catch (ResourceNotFoundException notFound) {
+                    result.getNotFound().add(id);
+                } catch (DatabaseException blocked) {
+                    result.getBlocked().add(id);
+                }
+            }
+            return result;
+        }
+    }
+
+    private boolean isIndexedSearch(String name, Pageable pageable) {
+        return !name.isBlank() && pageable.getSort().isUnsorted() && searchIndex.isReady();
+    }
+
+    private Double parsePrice(String value) {
+        if (value == null) {
+            return -Double.MAX_VALUE;
+        }
+        try {
+            return Double.valueOf(value);
+        } catch (NumberFormatException e) {
+            throw new BadRequestException("Cursor inválido");
         }
     }
 
+    // The version read here only catches clients that saw an older copy. A
+    // writer that commits between this read and our flush is caught by the
+    // version predicate Hibernate adds to the UPDATE.
+    private void checkVersion(Product entity, String ifMatch, Integer expectedVersion) {
+        if (ifMatch != null) {
+            String etag = jsonCache.productETag(entity.getId(), entity.getVersion());
+            if (!ETags.matchesStrong(ifMatch, etag)) {
+                throw new ConflictException(CONFLICT_MESSAGE);
+            }
+        }
+        if (expectedVersion != null && !expectedVersion.equals(entity.getVersion())) {
+            throw new ConflictException(CONFLICT_MESSAGE);
+        }
+    }
+
+    private ProductDTO publishChange(ProductDTO dto) {
+        eventPublisher.publishEvent(new ProductChangedEvent(dto.getId(), dto));
+        return dto;
+    }
+
     private void copyDtoEntity(ProductDTO dto, Product entity) {
         entity.setName(dto.getName());
         entity.setDescription(dto.getDescription());
         entity.setPrice(dto.getPrice());
         entity.setImgUrl(dto.getImgUrl());
+        copyCategories(dto.getCategories(), entity);
+    }
 
-        entity.getCategories().clear();
-        for (CategoryDTO catDTO : dto.getCategories()) {
-            Category cat = new Category();
-            cat.setId(catDTO.getId());
-            entity.getCategories().add(cat);
+    // Changes only the links that differ, so the join table sees targeted
+    // deletes and inserts instead of being rewritten on every update.
+    private void copyCategories(List<CategoryDTO> categories, Product entity) {
+        Set<Long> requested = new HashSet<>();
+        for (CategoryDTO catDTO : categories) {
+            requested.add(catDTO.getId());
+        }
+        entity.getCategories().removeIf(cat -> !requested.contains(cat.getId()));
+        for (Category current : entity.getCategories()) {
+            requested.remove(current.getId());
+        }
+        if (requested.isEmpty()) {
+            return;
+        }
+        // Links point at managed categories: an id-only instance has no
+        // version, so Hibernate would treat it as transient on flush.
+        List<Category> found = categoryRepository.findAllById(requested);
+        for (Category cat : found) {
+            requested.remove(cat.getId());
+        }
+        if (!requested.isEmpty()) {
+            throw new UnprocessableEntityException("Categoria inexistente: " + requested.iterator().next());
         }
+        entity.getCategories().addAll(found);
     }
 }
@@ -0,0 +1,240 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.StockDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Stock reservations for orders. Each product has an in-memory counter that
+ * is taken with compare-and-set, so a sold-out product is rejected without
+ * touching the database and buyers of different products never share a lock.
+ * The database stays authoritative: every line is also applied with a
+ * conditional UPDATE that only matches while enough stock is left. Lines are
+ * applied in product id order and an order is reserved whole or not at all.
+ * <p>
+ * A counter may run ahead of the database (it is dropped and reloaded when
+ * the database rejects a line). Changes made through this bean never leave it
+ * below the database: taken units are given back when the transaction rolls
+ * back, and released units once it commits. Stock changed elsewhere, by
+ * another instance or directly in the database, is not seen that way, so a
+ * counter that would reject a line is reloaded first once it is older than
+ * stock.counter-refresh-ms.
+ */
+@Service
+public class StockReservationService implements MetricsSource {
+
+    private final ConcurrentMap<Long, Counter> counters = new ConcurrentHashMap<>();
+
+    private final LongAdder reservations = new LongAdder();
+    private final LongAdder fastRejects = new LongAdder();
+    private final LongAdder databaseRejects = new LongAdder();
+    private final LongAdder releases = new LongAdder();
+
+    @Value("${stock.counter-refresh-ms:1000}")
+    private long refreshMillis = 1000;
+
+    @Autowired
+    private ProductRepository repository;
+
+    /**
+     * Reserves every line or none. Returns the ids of the products that did
+     * not have enough stock, empty on success. Must run in the transaction
+     * that stores the order.
+     */
+    public List<Long> reserve(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> lines = new TreeMap<>(quantities);
+        List<Long> unavailable = new ArrayList<>();
+        Map<Long, Counter> taken = new LinkedHashMap<>();
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            Counter counter = counterFor(line.getKey());
+            if (!counter.tryTake(line.getValue())) {
+                counter = refresh(line.getKey(), counter);
+                if (!counter.tryTake(line.getValue())) {
+                    unavailable.add(line.getKey());
+                    continue;
+                }
+            }
+            taken.put(line.getKey(), counter);
+        }
+        if (!unavailable.isEmpty()) {
+            fastRejects.increment();
+            taken.forEach((id, counter) -> counter.give(lines.get(id)));
+            return unavailable;
+        }
+
+        List<Long> applied = new ArrayList<>();
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            if (repository.reserveStock(line.getKey(), line.getValue()) == 0) {
+                unavailable.add(line.getKey());
+                break;
+            }
+            applied.add(line.getKey());
+        }
+        if (!unavailable.isEmpty()) {
+            databaseRejects.increment();
+            for (Long id : applied) {
+                repository.releaseStock(id, lines.get(id));
+            }
+            taken.forEach((id, counter) -> counter.give(lines.get(id)));
+            Long stale = unavailable.get(0);
+            Counter counter = taken.get(stale);
+            afterCompletion(committed -> counters.remove(stale, counter));
+            return unavailable;
+        }
+
+        reservations.increment();
+        afterCompletion(committed -> {
+            if (!committed) {
+                taken.forEach((id, counter) -> counter.give(lines.get(id)));
+            }
+        });
+        return unavailable;
+    }
+
+    /**
+     * Gives back stock held by an order. Must run in the transaction that
+     * moves the order out of the state that holds it.
+     */
+    public void release(Map<Long, Integer> quantities) {
+        SortedMap<Long, Integer> lines = new TreeMap<>(quantities);
+        for (Map.Entry<Long, Integer> line : lines.entrySet()) {
+            repository.releaseStock(line.getKey(), line.getValue());
+        }
+        releases.increment();
+        afterCompletion(committed -> {
+            if (committed) {
+                lines.forEach((id, quantity) -> counters.computeIfPresent(id, (key, counter) -> {
+                    counter.give(quantity);
+                    return counter;
+                }));
+            }
+        });
+    }
+
+    @Transactional(readOnly = true)
+    public StockDTO findStock(Long productId) {
+        return repository.findStockById(productId)
+                .map(p -> new StockDTO(p.getId(), p.getStock()))
+                .orElseThrow(() -> new ResourceNotFoundException("Recurso não encontrado"));
+    }
+
+    @Transactional
+    public StockDTO setStock(Long productId, Integer stock) {
+        if (repository.updateStock(productId, stock) == 0) {
+            throw new ResourceNotFoundException("Recurso não encontrado");
+        }
+        afterCompletion(committed -> counters.remove(productId));
+        return new StockDTO(productId, stock);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        if (event.isDeleted()) {
+            counters.remove(event.getId());
+        }
+    }
+
+    // Loads outside the map: computeIfAbsent would run the query while holding
+    // the lock of the map bin, stalling every product that hashes there.
+    private Counter counterFor(Long productId) {
+        Counter counter = counters.get(productId);
+        if (counter != null) {
+            return counter;
+        }
+        Counter loaded = load(productId);
+        counter = counters.putIfAbsent(productId, loaded);
+        return (counter == null) ? loaded : counter;
+    }
+
+    private Counter refresh(Long productId, Counter counter) {
+        if (System.currentTimeMillis() - counter.loadedAt < refreshMillis) {
+            return counter;
+        }
+        Counter loaded = load(productId);
+        if (counters.replace(productId, counter, loaded)) {
+            return loaded;
+        }
+        Counter current = counters.get(productId);
+        return (current == null) ? loaded : current;
+    }
+
+    private Counter load(Long productId) {
+        return new Counter(repository.findStockById(productId).map(p -> p.getStock()).orElse(null));
+    }
+
+    private void afterCompletion(Consumer<Boolean> callback) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            callback.accept(true);
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                callback.accept(status == STATUS_COMMITTED);
+            }
+        });
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "stock";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("counters", counters.size());
+        metrics.put("reservations", reservations.sum());
+        metrics.put("fastRejects", fastRejects.sum());
+        metrics.put("databaseRejects", databaseRejects.sum());
+        metrics.put("releases", releases.sum());
+        return metrics;
+    }
+
+    private static class Counter {
+
+        // Null for untracked products, which never run out.
+        private final AtomicInteger available;
+        private final long loadedAt = System.currentTimeMillis();
+
+        Counter(Integer stock) {
+            available = (stock == null) ? null : new AtomicInteger(stock);
+        }
+
+        boolean tryTake(int quantity) {
+            if (available == null) {
+                return true;
+            }
+            int current;
+            do {
+                current = available.get();
+                if (current < quantity) {
+                    return false;
+                }
+            } while (!available.compareAndSet(current, current - quantity));
+            return true;
+        }
+
+        void give(int quantity) {
+            if (available != null) {
+                available.addAndGet(quantity);
+            }
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A response body encoded once and written as is on every request. The gzip
+ * variant is compressed on first use and kept alongside the plain bytes.
+ */
+public class CachedJson {
+
+    private final byte[] json;
+    private final String etag;
+    private volatile byte[] gzip;
+
+    public CachedJson(byte[] json, String etag) {
+        this.json = json;
+        this.etag = etag;
+    }
+
+    public byte[] getJson() {
+        return json;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public byte[] getGzip() {
+        byte[] result = gzip;
+        if (result == null) {
+            result = compress(json);
+            gzip = result;
+        }
+        return result;
+    }
+
+    private static byte[] compress(byte[] bytes) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(Math.max(64, bytes.length / 4));
+        try (GZIPOutputStream gz = new GZIPOutputStream(out)) {
+            gz.write(bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return out.toByteArray();
+    }
+}
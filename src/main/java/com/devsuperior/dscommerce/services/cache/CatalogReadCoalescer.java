@@ -0,0 +1,63 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Shares one database load between concurrent identical catalog reads.
+ * Loads in flight when a product write commits are detached, so no read that
+ * arrives afterwards is answered with data loaded before the commit.
+ */
+@Component
+public class CatalogReadCoalescer implements MetricsSource {
+
+    private final SingleFlight<Long, ProductDTO> products = new SingleFlight<>();
+    private final SingleFlight<List<Object>, Page<ProductMinDTO>> listings = new SingleFlight<>();
+
+    public ProductDTO product(Long id, Supplier<ProductDTO> loader) {
+        return products.execute(id, loader);
+    }
+
+    public Page<ProductMinDTO> listing(String name, Pageable pageable, Supplier<Page<ProductMinDTO>> loader) {
+        return listings.execute(List.of(name, pageable), loader);
+    }
+
+    // Runs before the caches are invalidated: a reader that sees the new cache
+    // generation must not be able to join a flight started before the commit,
+    // or it would store that flight's old data under the new generation.
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        products.forget(event.getId());
+        listings.forgetAll();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "catalogReadCoalescer";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("productLoads", products.getLoads());
+        metrics.put("productCoalesced", products.getCoalesced());
+        metrics.put("listingLoads", listings.getLoads());
+        metrics.put("listingCoalesced", listings.getCoalesced());
+        metrics.put("inFlight", products.getInFlight() + listings.getInFlight());
+        return metrics;
+    }
+}
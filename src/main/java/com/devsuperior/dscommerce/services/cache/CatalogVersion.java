@@ -0,0 +1,29 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Changes whenever a product write commits. The epoch is taken at startup so
+ * a tag issued before a restart never matches one issued after it.
+ */
+@Component
+public class CatalogVersion {
+
+    private final String epoch = Long.toString(System.currentTimeMillis(), 36);
+    private final AtomicLong counter = new AtomicLong();
+
+    public String current() {
+        return epoch + "." + counter.get();
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        counter.incrementAndGet();
+    }
+}
@@ -0,0 +1,208 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Bounded in-process cache with LRU and TTL eviction. Keys are spread over
+ * independently locked segments so concurrent readers rarely contend.
+ * A load that overlaps an invalidation of its segment is returned to the
+ * caller but not stored, so a value read before a write commits cannot
+ * outlive the invalidation that follows the commit.
+ */
+public class LocalCache<K, V> {
+
+    private static final int SEGMENTS = 16;
+
+    private final Segment<K, V>[] segments;
+    private final long ttlMillis;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public LocalCache(int maxSize, long ttlMillis) {
+        this.ttlMillis = ttlMillis;
+        int segmentCapacity = Math.max(1, maxSize / SEGMENTS);
+        segments = (Segment<K, V>[]) new Segment<?, ?>[SEGMENTS];
+        for (int i = 0; i < SEGMENTS; i++) {
+            segments[i] = new Segment<>(segmentCapacity);
+        }
+    }
+
+    public V getIfPresent(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        long now = System.currentTimeMillis();
+        synchronized (segment) {
+            Entry<V> entry = segment.map.get(key);
+            if (entry != null && entry.expiresAt > now) {
+                hits.increment();
+                return entry.value;
+            }
+            if (entry != null) {
+                segment.map.remove(key);
+                evictions.increment();
+            }
+        }
+        misses.increment();
+        return null;
+    }
+
+    public V get(K key, Supplier<V> loader) {
+        V value = getIfPresent(key);
+        if (value != null) {
+            return value;
+        }
+        Segment<K, V> segment = segmentFor(key);
+        long generation;
+        synchronized (segment) {
+            generation = segment.generation;
+        }
+        value = loader.get();
+        if (value != null) {
+            synchronized (segment) {
+                if (segment.generation == generation) {
+                    store(segment, key, value);
+                }
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Returns the values found for the given keys, in key order. Missing keys
+     * are loaded with a single loader call; keys the loader does not return
+     * are left out of the result.
+     */
+    public Map<K, V> getAll(Collection<K> keys, Function<Collection<K>, Map<K, V>> loader) {
+        Map<K, V> result = new LinkedHashMap<>();
+        Map<K, Long> generations = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = getIfPresent(key);
+            if (value != null) {
+                result.put(key, value);
+            } else {
+                Segment<K, V> segment = segmentFor(key);
+                synchronized (segment) {
+                    generations.put(key, segment.generation);
+                }
+            }
+        }
+        if (generations.isEmpty()) {
+            return result;
+        }
+
+        Map<K, V> loaded = loader.apply(generations.keySet());
+        for (Map.Entry<K, Long> entry : generations.entrySet()) {
+            V value = loaded.get(entry.getKey());
+            if (value == null) {
+                continue;
+            }
+            Segment<K, V> segment = segmentFor(entry.getKey());
+            synchronized (segment) {
+                if (segment.generation == entry.getValue()) {
+                    store(segment, entry.getKey(), value);
+                }
+            }
+        }
+
+        Map<K, V> ordered = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = result.containsKey(key) ? result.get(key) : loaded.get(key);
+            if (value != null) {
+                ordered.put(key, value);
+            }
+        }
+        return ordered;
+    }
+
+    public void put(K key, V value) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            store(segment, key, value);
+        }
+    }
+
+    public void invalidate(K key) {
+        Segment<K, V> segment = segmentFor(key);
+        synchronized (segment) {
+            segment.generation++;
+            segment.map.remove(key);
+        }
+    }
+
+    public void invalidateAll() {
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                segment.generation++;
+                segment.map.clear();
+            }
+        }
+    }
+
+    public long size() {
+        long size = 0;
+        for (Segment<K, V> segment : segments) {
+            synchronized (segment) {
+                size += segment.map.size();
+            }
+        }
+        return size;
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    private void store(Segment<K, V> segment, K key, V value) {
+        segment.map.put(key, new Entry<>(value, System.currentTimeMillis() + ttlMillis));
+        Iterator<Map.Entry<K, Entry<V>>> it = segment.map.entrySet().iterator();
+        while (segment.map.size() > segment.capacity && it.hasNext()) {
+            it.next();
+            it.remove();
+            evictions.increment();
+        }
+    }
+
+    private Segment<K, V> segmentFor(K key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & (SEGMENTS - 1)];
+    }
+
+    private static class Segment<K, V> {
+
+        private final int capacity;
+        private final LinkedHashMap<K, Entry<V>> map = new LinkedHashMap<>(16, 0.75f, true);
+        private long generation;
+
+        Segment(int capacity) {
+            this.capacity = capacity;
+        }
+    }
+
+    private static class Entry<V> {
+
+        private final V value;
+        private final long expiresAt;
+
+        Entry(V value, long expiresAt) {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
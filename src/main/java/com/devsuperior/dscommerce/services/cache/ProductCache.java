@@ -0,0 +1,59 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+@Component
+public class ProductCache implements MetricsSource {
+
+    private final LocalCache<Long, ProductDTO> cache;
+
+    public ProductCache(@Value("${catalog.product-cache.max-size:10000}") int maxSize,
+                        @Value("${catalog.product-cache.ttl-ms:300000}") long ttlMillis) {
+        cache = new LocalCache<>(maxSize, ttlMillis);
+    }
+
+    public ProductDTO get(Long id, Supplier<ProductDTO> loader) {
+        return cache.get(id, loader);
+    }
+
+    public Map<Long, ProductDTO> getAll(Collection<Long> ids, Function<Collection<Long>, Map<Long, ProductDTO>> loader) {
+        return cache.getAll(ids, loader);
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        cache.invalidate(event.getId());
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "productCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("size", cache.size());
+        metrics.put("hits", cache.getHits());
+        metrics.put("misses", cache.getMisses());
+        metrics.put("evictions", cache.getEvictions());
+        return metrics;
+    }
+}
@@ -0,0 +1,74 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Short-lived cache of listing totals per search term, so paging through the
+ * same search does not repeat the COUNT query on every page.
+ */
+@Component
+public class ProductCountCache {
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final AtomicLong generation = new AtomicLong();
+    private final long ttlMillis;
+    private final int maxEntries;
+
+    public ProductCountCache(@Value("${catalog.count-cache.ttl-ms:30000}") long ttlMillis,
+                             @Value("${catalog.count-cache.max-entries:1000}") int maxEntries) {
+        this.ttlMillis = ttlMillis;
+        this.maxEntries = maxEntries;
+    }
+
+    public long get(String name, LongSupplier loader) {
+        String key = name.toUpperCase(Locale.ROOT);
+        long now = System.currentTimeMillis();
+        Entry entry = entries.get(key);
+        if (entry != null && entry.expiresAt > now) {
+            return entry.count;
+        }
+        long loadedAt = generation.get();
+        long count = loader.getAsLong();
+        if (loadedAt != generation.get()) {
+            return count;
+        }
+        if (entries.size() >= maxEntries) {
+            entries.values().removeIf(x -> x.expiresAt <= now);
+            if (entries.size() >= maxEntries) {
+                entries.clear();
+            }
+        }
+        entries.put(key, new Entry(count, now + ttlMillis));
+        return count;
+    }
+
+    public void clear() {
+        generation.incrementAndGet();
+        entries.clear();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        clear();
+    }
+
+    private static class Entry {
+
+        private final long count;
+        private final long expiresAt;
+
+        Entry(long count, long expiresAt) {
+            this.count = count;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
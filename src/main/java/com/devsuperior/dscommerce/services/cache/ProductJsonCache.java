@@ -0,0 +1,110 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import com.devsuperior.dscommerce.util.ETags;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Serialized product and listing responses. Listing pages are all dropped on
+ * any product write, since a single change can move items across pages.
+ */
+@Component
+public class ProductJsonCache implements MetricsSource {
+
+    private final ObjectMapper objectMapper;
+    private final CatalogVersion catalogVersion;
+    private final LocalCache<Long, CachedJson> products;
+    private final LocalCache<List<Object>, CachedJson> listings;
+
+    public ProductJsonCache(ObjectMapper objectMapper, CatalogVersion catalogVersion,
+                            @Value("${catalog.json-cache.product-max-size:10000}") int productMaxSize,
+                            @Value("${catalog.json-cache.listing-max-size:500}") int listingMaxSize,
+                            @Value("${catalog.json-cache.ttl-ms:300000}") long ttlMillis) {
+        this.objectMapper = objectMapper;
+        this.catalogVersion = catalogVersion;
+        products = new LocalCache<>(productMaxSize, ttlMillis);
+        listings = new LocalCache<>(listingMaxSize, ttlMillis);
+    }
+
+    public CachedJson product(Long id, Supplier<ProductDTO> loader) {
+        return products.get(id, () -> {
+            ProductDTO dto = loader.get();
+            return serialize(dto, productETag(id, dto.getVersion()));
+        });
+    }
+
+    public CachedJson getProductIfPresent(Long id) {
+        return products.getIfPresent(id);
+    }
+
+    public CachedJson listing(String name, Pageable pageable, Supplier<Page<ProductMinDTO>> loader) {
+        return listings.get(List.of(name, pageable), () -> {
+            // read inside the loader, after the segment generation, so a tag
+            // taken before a write can never be stored next to newer content
+            String etag = listingETag();
+            return serialize(loader.get(), etag);
+        });
+    }
+
+    public String productETag(Long id, Integer version) {
+        return ETags.of("p" + id, version);
+    }
+
+    public String listingETag() {
+        return ETags.of("l" + catalogVersion.current());
+    }
+
+    public void invalidateAll() {
+        products.invalidateAll();
+        listings.invalidateAll();
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        products.invalidate(event.getId());
+        listings.invalidateAll();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "productJsonCache";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("productSize", products.size());
+        metrics.put("productHits", products.getHits());
+        metrics.put("productMisses", products.getMisses());
+        metrics.put("listingSize", listings.size());
+        metrics.put("listingHits", listings.getHits());
+        metrics.put("listingMisses", listings.getMisses());
+        metrics.put("evictions", products.getEvictions() + listings.getEvictions());
+        return metrics;
+    }
+
+    private CachedJson serialize(Object value, String etag) {
+        try {
+            return new CachedJson(objectMapper.writeValueAsBytes(value), etag);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    public ServiceUnavailableException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,8 @@
+package com.devsuperior.dscommerce.services.exceptions;
+
+public class UnprocessableEntityException extends RuntimeException {
+
+    public UnprocessableEntityException(String msg) {
+        super(msg);
+    }
+}
@@ -0,0 +1,57 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+
+/**
+ * Appends messages to a local NDJSON file, one line per message, and syncs
+ * the file before reporting the batch as delivered. Enabled by setting
+ * outbox.sink.file.path.
+ */
+@Component
+@ConditionalOnProperty(name = "outbox.sink.file.path")
+public class FileOutboxSink implements OutboxSink {
+
+    private final String path;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    public FileOutboxSink(@Value("${outbox.sink.file.path}") String path) {
+        this.path = path;
+    }
+
+    @Override
+    public synchronized void send(List<OutboxMessage> messages) {
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            for (OutboxMessage message : messages) {
+                ObjectNode line = objectMapper.createObjectNode();
+                line.put("id", message.getId());
+                line.put("type", message.getType());
+                line.put("aggregateId", message.getAggregateId());
+                line.put("createdAt", message.getCreatedAt().toString());
+                line.set("payload", objectMapper.readTree(message.getPayload()));
+                buffer.write(objectMapper.writeValueAsBytes(line));
+                buffer.write('\n');
+            }
+            try (FileOutputStream out = new FileOutputStream(path, true)) {
+                buffer.writeTo(out);
+                out.getFD().sync();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import com.devsuperior.dscommerce.events.OutboxMessageEvent;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Hands each message to in-process listeners of OutboxMessageEvent. Listeners
+ * run on the dispatcher thread, and an exception from one of them fails the
+ * batch so that it is retried.
+ */
+@Component
+public class InProcessOutboxSink implements OutboxSink {
+
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
+    @Override
+    public void send(List<OutboxMessage> messages) {
+        for (OutboxMessage message : messages) {
+            eventPublisher.publishEvent(new OutboxMessageEvent(message));
+        }
+    }
+}
@@ -0,0 +1,62 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderStatusChangeDTO;
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import com.devsuperior.dscommerce.repositories.OutboxMessageRepository;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Records order lifecycle events in the outbox table. Always called inside
+ * the transaction that changes the order, so an event is stored if and only
+ * if the change commits; OutboxDispatcher delivers it afterwards.
+ */
+@Component
+public class OrderOutbox {
+
+    public static final String ORDER_CREATED = "ORDER_CREATED";
+    public static final String ORDER_STATUS_CHANGED = "ORDER_STATUS_CHANGED";
+
+    @Autowired
+    private OutboxMessageRepository repository;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void created(Order order) {
+        repository.save(new OutboxMessage(null, ORDER_CREATED, order.getId(), toJson(new OrderDTO(order)),
+                Instant.now()));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void statusChanged(Collection<Long> orderIds, OrderStatus from, OrderStatus to) {
+        Instant now = Instant.now();
+        List<OutboxMessage> messages = new ArrayList<>(orderIds.size());
+        for (Long orderId : orderIds) {
+            messages.add(new OutboxMessage(null, ORDER_STATUS_CHANGED, orderId,
+                    toJson(new OrderStatusChangeDTO(orderId, from, to, now)), now));
+        }
+        repository.saveAll(messages);
+    }
+
+    private String toJson(Object value) {
+        try {
+            return objectMapper.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
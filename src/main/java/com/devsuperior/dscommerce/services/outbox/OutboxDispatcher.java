@@ -0,0 +1,174 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import com.devsuperior.dscommerce.repositories.OutboxMessageRepository;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drains the outbox table in id order and hands each batch to every sink.
+ * Rows are deleted only after all sinks accepted the batch, so a crash or a
+ * failing sink leads to the batch being sent again (at-least-once). While a
+ * sink keeps failing, attempts back off exponentially up to a ceiling.
+ * <p>
+ * Id order is not commit order: pooled sequence ids are handed out at
+ * persist time, so a transaction holding a lower id can commit after one
+ * holding a higher id, and its row then lands behind rows already sent.
+ * Only the order of events for the same order holds, because each of them
+ * is written by a transaction that starts after the previous one committed.
+ */
+@Component
+public class OutboxDispatcher implements MetricsSource {
+
+    private final boolean enabled;
+    private final int batchSize;
+    private final long intervalMillis;
+    private final long maxBackoffMillis;
+
+    private final LongAdder dispatched = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder retries = new LongAdder();
+    private volatile int lastBatchSize;
+    private volatile long lastLagMillis;
+    private volatile long maxLagMillis;
+    private volatile int consecutiveFailures;
+    private volatile long nextAttemptMillis;
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    private OutboxMessageRepository repository;
+
+    @Autowired
+    private List<OutboxSink> sinks;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public OutboxDispatcher(@Value("${outbox.dispatch.enabled:true}") boolean enabled,
+                            @Value("${outbox.dispatch.batch-size:100}") int batchSize,
+                            @Value("${outbox.dispatch.interval-ms:200}") long intervalMillis,
+                            @Value("${outbox.dispatch.max-backoff-ms:30000}") long maxBackoffMillis) {
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.intervalMillis = intervalMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "outbox-dispatcher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> dispatch(System.currentTimeMillis()), intervalMillis, intervalMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    int dispatch(long nowMillis) {
+        if (sinks.isEmpty() || nowMillis < nextAttemptMillis) {
+            return 0;
+        }
+        int result = 0;
+        try {
+            List<OutboxMessage> batch;
+            do {
+                batch = nextBatch();
+                if (batch.isEmpty()) {
+                    break;
+                }
+                for (OutboxSink sink : sinks) {
+                    sink.send(batch);
+                }
+                delete(batch);
+                record(batch, System.currentTimeMillis());
+                result += batch.size();
+            } while (batch.size() == batchSize);
+            consecutiveFailures = 0;
+            nextAttemptMillis = 0;
+        } catch (RuntimeException e) {
+            // the batch stays in the table and is sent again after the backoff
+            retries.increment();
+            int failures = ++consecutiveFailures;
+            long backoff = Math.min(maxBackoffMillis, intervalMillis << Math.min(failures, 20));
+            nextAttemptMillis = nowMillis + backoff;
+        }
+        return result;
+    }
+
+    private List<OutboxMessage> nextBatch() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        return transaction.execute(status -> repository.findNextBatch(PageRequest.of(0, batchSize)));
+    }
+
+    private void delete(List<OutboxMessage> batch) {
+        List<Long> ids = new ArrayList<>(batch.size());
+        for (OutboxMessage message : batch) {
+            ids.add(message.getId());
+        }
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> repository.deleteAllByIdIn(ids));
+    }
+
+    private void record(List<OutboxMessage> batch, long nowMillis) {
+        long lag = Math.max(0, nowMillis - batch.get(0).getCreatedAt().toEpochMilli());
+        dispatched.add(batch.size());
+        batches.increment();
+        lastBatchSize = batch.size();
+        lastLagMillis = lag;
+        if (lag > maxLagMillis) {
+            maxLagMillis = lag;
+        }
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "outbox";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        long batchCount = batches.sum();
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("sinks", sinks.size());
+        metrics.put("dispatched", dispatched.sum());
+        metrics.put("batches", batchCount);
+        metrics.put("lastBatchSize", lastBatchSize);
+        metrics.put("avgBatchSize", batchCount == 0 ? 0.0 : (double) dispatched.sum() / batchCount);
+        metrics.put("lastLagMs", lastLagMillis);
+        metrics.put("maxLagMs", maxLagMillis);
+        metrics.put("retries", retries.sum());
+        metrics.put("consecutiveFailures", consecutiveFailures);
+        return metrics;
+    }
+}
@@ -0,0 +1,15 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+
+import java.util.List;
+
+/**
+ * Destination for outbox messages. A batch counts as delivered only when
+ * send returns; if it throws, the whole batch is sent again later, so a sink
+ * must tolerate seeing a message more than once (the id identifies it).
+ */
+public interface OutboxSink {
+
+    void send(List<OutboxMessage> messages);
+}
@@ -0,0 +1,90 @@
+package com.devsuperior.dscommerce.services.scheduling;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Hashed timing wheel. Time is cut into ticks and every tick maps to one of
+ * wheel-size slots, so scheduling is a constant-time append and advancing
+ * only looks at the slots of the ticks that went by. A deadline more than one
+ * turn away sits in its slot until the wheel comes round to it. Nothing can
+ * be cancelled; callers check on expiry whether the item still applies.
+ */
+public class TimingWheel<T> {
+
+    private final long tickMillis;
+    private final long originMillis;
+    private final int mask;
+    private final List<List<Entry<T>>> slots;
+
+    private long currentTick;
+    private int size;
+
+    public TimingWheel(long tickMillis, int wheelSize, long originMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0 || Integer.bitCount(wheelSize) != 1) {
+            throw new IllegalArgumentException("tickMillis must be positive and wheelSize a power of two");
+        }
+        this.tickMillis = tickMillis;
+        this.originMillis = originMillis;
+        this.mask = wheelSize - 1;
+        this.slots = new ArrayList<>(wheelSize);
+        for (int i = 0; i < wheelSize; i++) {
+            slots.add(new ArrayList<>());
+        }
+    }
+
+    /**
+     * Deadlines already past are due on the next advance.
+     */
+    public synchronized void schedule(T item, long deadlineMillis) {
+        long tick = Math.max(Math.floorDiv(deadlineMillis - originMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        slots.get((int) (tick & mask)).add(new Entry<>(tick, item));
+        size++;
+    }
+
+    /**
+     * Moves the wheel to the given time and returns every item whose deadline
+     * has been reached, in no particular order.
+     */
+    public synchronized List<T> advance(long nowMillis) {
+        long nowTick = Math.floorDiv(nowMillis - originMillis, tickMillis);
+        List<T> due = new ArrayList<>();
+        // After a pause longer than one turn, one visit per slot finds everything.
+        long lastTick = Math.min(nowTick, currentTick + slots.size());
+        while (currentTick < lastTick) {
+            currentTick++;
+            int index = (int) (currentTick & mask);
+            List<Entry<T>> slot = slots.get(index);
+            if (slot.isEmpty()) {
+                continue;
+            }
+            List<Entry<T>> later = new ArrayList<>();
+            for (Entry<T> entry : slot) {
+                if (entry.tick <= nowTick) {
+                    due.add(entry.item);
+                } else {
+                    later.add(entry);
+                }
+            }
+            slots.set(index, later);
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        size -= due.size();
+        return due;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    private static class Entry<T> {
+
+        private final long tick;
+        private final T item;
+
+        Entry(long tick, T item) {
+            this.tick = tick;
+            this.item = item;
+        }
+    }
+}
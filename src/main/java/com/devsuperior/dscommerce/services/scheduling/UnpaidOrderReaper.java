@@ -0,0 +1,192 @@
+package com.devsuperior.dscommerce.services.scheduling;
+
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.events.OrderCreatedEvent;
+import com.devsuperior.dscommerce.projections.OrderMomentProjection;
+import com.devsuperior.dscommerce.projections.ProductQuantityProjection;
+import com.devsuperior.dscommerce.repositories.OrderItemRepository;
+import com.devsuperior.dscommerce.repositories.OrderRepository;
+import com.devsuperior.dscommerce.services.StockReservationService;
+import com.devsuperior.dscommerce.services.metrics.MetricsSource;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Stream;
+
+/**
+ * Cancels orders still waiting for payment once their deadline passes and
+ * gives back the stock they hold. Deadlines live in a timing wheel filled
+ * from the open orders at startup and from new orders as they commit, so the
+ * table is read once instead of scanned on every run. Due orders are
+ * cancelled with a JDBC batch of conditional UPDATEs; an order paid or
+ * cancelled in the meantime no longer matches and is left alone.
+ */
+@Component
+public class UnpaidOrderReaper implements MetricsSource {
+
+    private static final String CANCEL_IF_WAITING =
+            "UPDATE tb_order SET status = ? WHERE id = ? AND status = ?";
+
+    private final boolean enabled;
+    private final long deadlineMillis;
+    private final long tickMillis;
+    private final int batchSize;
+    private final TimingWheel<Long> wheel;
+
+    private final LongAdder due = new LongAdder();
+    private final LongAdder canceled = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    private ScheduledExecutorService executor;
+
+    @Autowired
+    private OrderRepository repository;
+
+    @Autowired
+    private OrderItemRepository itemRepository;
+
+    @Autowired
+    private StockReservationService stockService;
+
+    @Autowired
+    private OrderOutbox outbox;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    public UnpaidOrderReaper(@Value("${orders.expiry.enabled:true}") boolean enabled,
+                             @Value("${orders.expiry.payment-deadline-ms:1800000}") long deadlineMillis,
+                             @Value("${orders.expiry.tick-ms:1000}") long tickMillis,
+                             @Value("${orders.expiry.wheel-size:4096}") int wheelSize,
+                             @Value("${orders.expiry.batch-size:500}") int batchSize) {
+        this.enabled = enabled;
+        this.deadlineMillis = deadlineMillis;
+        this.tickMillis = tickMillis;
+        this.batchSize = batchSize;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!enabled || executor != null) {
+            return;
+        }
+        rebuild();
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "order-expiry");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(() -> reap(System.currentTimeMillis()), tickMillis, tickMillis,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    void rebuild() {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> {
+            try (Stream<OrderMomentProjection> open = repository.streamByStatus(OrderStatus.WAITING_PAYMENT)) {
+                open.forEach(order -> wheel.schedule(order.getId(), order.getMoment().toEpochMilli() + deadlineMillis));
+            }
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderCreated(OrderCreatedEvent event) {
+        if (enabled) {
+            wheel.schedule(event.getId(), event.getMoment().toEpochMilli() + deadlineMillis);
+        }
+    }
+
+    int reap(long nowMillis) {
+        List<Long> ids = wheel.advance(nowMillis);
+        due.add(ids.size());
+        int result = 0;
+        for (int from = 0; from < ids.size(); from += batchSize) {
+            List<Long> batch = ids.subList(from, Math.min(from + batchSize, ids.size()));
+            try {
+                result += cancel(batch);
+            } catch (RuntimeException e) {
+                // back on the wheel, so the batch is tried again next tick
+                failures.increment();
+                for (Long id : batch) {
+                    wheel.schedule(id, nowMillis);
+                }
+            }
+        }
+        return result;
+    }
+
+    private int cancel(List<Long> ids) {
+        List<Long> cancelled = new TransactionTemplate(transactionManager).execute(status -> {
+            List<Object[]> args = new ArrayList<>(ids.size());
+            for (Long id : ids) {
+                args.add(new Object[]{OrderStatus.CANCELED.ordinal(), id, OrderStatus.WAITING_PAYMENT.ordinal()});
+            }
+            int[] counts = jdbcTemplate.batchUpdate(CANCEL_IF_WAITING, args);
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < counts.length; i++) {
+                // Only a positive count proves the order was still waiting;
+                // releasing on SUCCESS_NO_INFO could give stock back twice.
+                if (counts[i] > 0) {
+                    result.add(ids.get(i));
+                }
+            }
+            if (!result.isEmpty()) {
+                Map<Long, Integer> quantities = new HashMap<>();
+                for (ProductQuantityProjection line : itemRepository.sumQuantitiesByOrderIds(result)) {
+                    quantities.put(line.getProductId(), line.getQuantity().intValue());
+                }
+                stockService.release(quantities);
+                outbox.statusChanged(result, OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED);
+            }
+            return result;
+        });
+        batches.increment();
+        canceled.add(cancelled.size());
+        return cancelled.size();
+    }
+
+    @Override
+    public String getMetricsName() {
+        return "orderExpiry";
+    }
+
+    @Override
+    public Map<String, Object> getMetrics() {
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("enabled", enabled);
+        metrics.put("scheduled", wheel.size());
+        metrics.put("due", due.sum());
+        metrics.put("canceled", canceled.sum());
+        metrics.put("batches", batches.sum());
+        metrics.put("failures", failures.sum());
+        return metrics;
+    }
+}
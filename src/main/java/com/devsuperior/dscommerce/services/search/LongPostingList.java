@@ -0,0 +1,89 @@
+package com.devsuperior.dscommerce.services.search;
+
+import java.util.Arrays;
+
+/**
+ * Sorted set of product ids backed by a primitive array, so posting lists cost
+ * eight bytes per entry instead of a boxed Long and a map node.
+ */
+public class LongPostingList {
+
+    private static final int INITIAL_CAPACITY = 4;
+
+    private long[] values = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public long get(int index) {
+        return values[index];
+    }
+
+    public boolean contains(long value) {
+        return Arrays.binarySearch(values, 0, size, value) >= 0;
+    }
+
+    public void add(long value) {
+        if (size > 0 && values[size - 1] < value) {
+            ensureCapacity();
+            values[size++] = value;
+            return;
+        }
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos >= 0) {
+            return;
+        }
+        int insertAt = -pos - 1;
+        ensureCapacity();
+        System.arraycopy(values, insertAt, values, insertAt + 1, size - insertAt);
+        values[insertAt] = value;
+        size++;
+    }
+
+    public void remove(long value) {
+        int pos = Arrays.binarySearch(values, 0, size, value);
+        if (pos < 0) {
+            return;
+        }
+        System.arraycopy(values, pos + 1, values, pos, size - pos - 1);
+        size--;
+        if (size > INITIAL_CAPACITY && size < values.length / 4) {
+            values = Arrays.copyOf(values, values.length / 2);
+        }
+    }
+
+    public long[] intersect(long[] candidates) {
+        long[] result = new long[Math.min(candidates.length, size)];
+        int count = 0;
+        int from = 0;
+        for (long candidate : candidates) {
+            int pos = Arrays.binarySearch(values, from, size, candidate);
+            if (pos >= 0) {
+                result[count++] = candidate;
+                from = pos + 1;
+            } else {
+                from = -pos - 1;
+            }
+            if (from >= size) {
+                break;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    public long[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+
+    private void ensureCapacity() {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, values.length * 2);
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.CategoryDTO;
+import com.devsuperior.dscommerce.dto.CategoryFacetDTO;
+import com.devsuperior.dscommerce.dto.PriceFacetDTO;
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductFilterDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Bitmap index for catalog filters. Every product gets a dense ordinal and
+ * each category and price bucket keeps the set of ordinals it holds, so a
+ * filter is an intersection of bitmaps. Facet counts leave out their own
+ * dimension, which lets a client widen a selection it has already made.
+ * Name matches come from ProductSearchIndex. Ordinals of deleted products
+ * are reclaimed by renumbering once they outnumber the live ones.
+ */
+@Component
+public class ProductFacetIndex {
+
+    public static final Set<String> SORT_PROPERTIES = Set.of("id", "name", "price");
+
+    private static final int MIN_COMPACT_ORDINALS = 64;
+
+    private final double[] priceBounds;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Map<Long, Integer> ordinals = new HashMap<>();
+    private final List<ProductMinDTO> documents = new ArrayList<>();
+    private final List<Set<Long>> documentCategories = new ArrayList<>();
+    private BitSet live = new BitSet();
+    private final Map<Long, BitSet> byCategory = new TreeMap<>();
+    private final Map<Long, String> categoryNames = new HashMap<>();
+    private final BitSet[] byPrice;
+
+    private int deadOrdinals;
+
+    private volatile boolean ready;
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    public ProductFacetIndex(@Value("${catalog.facets.price-bounds:100,500,1000,5000}") double[] priceBounds) {
+        this.priceBounds = priceBounds.clone();
+        Arrays.sort(this.priceBounds);
+        byPrice = new BitSet[this.priceBounds.length + 1];
+        for (int i = 0; i < byPrice.length; i++) {
+            byPrice[i] = new BitSet();
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public void rebuild(List<ProductIndexProjection> products) {
+        List<Category> categories = categoryRepository.findAll();
+        List<ProductIndexProjection> rows = new ArrayList<>(products);
+        rows.sort(Comparator.comparing(ProductIndexProjection::getId));
+        Map<Long, Set<Long>> links = new HashMap<>();
+        for (ProductCategoryProjection link : repository.findAllCategoryLinks()) {
+            links.computeIfAbsent(link.getProductId(), x -> new HashSet<>()).add(link.getCategoryId());
+        }
+
+        lock.writeLock().lock();
+        try {
+            clear();
+            byCategory.clear();
+            categoryNames.clear();
+            for (Category category : categories) {
+                categoryNames.put(category.getId(), category.getName());
+                byCategory.put(category.getId(), new BitSet());
+            }
+            for (ProductIndexProjection row : rows) {
+                put(new ProductMinDTO(row.getId(), row.getName(), row.getPrice(), row.getImgUrl()),
+                        links.getOrDefault(row.getId(), Set.of()));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            if (event.isDeleted()) {
+                remove(event.getId());
+                return;
+            }
+            ProductDTO dto = event.getProduct();
+            Set<Long> categoryIds = new HashSet<>();
+            for (CategoryDTO category : dto.getCategories()) {
+                categoryIds.add(category.getId());
+                if (category.getName() != null) {
+                    categoryNames.put(category.getId(), category.getName());
+                }
+            }
+            put(new ProductMinDTO(dto.getId(), dto.getName(), dto.getPrice(), dto.getImgUrl()), categoryIds);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready && searchIndex.isReady();
+    }
+
+    public ProductFilterDTO filter(String name, Collection<Long> categoryIds, Double minPrice, Double maxPrice,
+                                   Pageable pageable) {
+        long[] nameIds = name.isBlank() ? null : searchIndex.matchingIds(name);
+        lock.readLock().lock();
+        try {
+            BitSet nameBits = nameIds == null ? null : toBits(nameIds);
+            BitSet categoryBits = categoryIds.isEmpty() ? null : matchCategories(categoryIds);
+            BitSet priceBits = (minPrice == null && maxPrice == null) ? null : matchPrice(minPrice, maxPrice);
+
+            BitSet result = intersect(live, nameBits, categoryBits, priceBits);
+
+            BitSet withoutCategory = intersect(live, nameBits, priceBits);
+            List<CategoryFacetDTO> categoryFacets = new ArrayList<>();
+            for (Map.Entry<Long, BitSet> entry : byCategory.entrySet()) {
+                categoryFacets.add(new CategoryFacetDTO(entry.getKey(), categoryNames.get(entry.getKey()),
+                        countBoth(withoutCategory, entry.getValue())));
+            }
+
+            BitSet withoutPrice = intersect(live, nameBits, categoryBits);
+            List<PriceFacetDTO> priceFacets = new ArrayList<>();
+            for (int i = 0; i < byPrice.length; i++) {
+                Double min = i == 0 ? 0.0 : priceBounds[i - 1];
+                Double max = i == priceBounds.length ? null : priceBounds[i];
+                priceFacets.add(new PriceFacetDTO(min, max, countBoth(withoutPrice, byPrice[i])));
+            }
+
+            List<ProductMinDTO> content = pageable.getSort().isSorted() ? sortedPage(result, pageable)
+                    : page(result, pageable);
+            return new ProductFilterDTO(content, pageable.getPageNumber(), pageable.getPageSize(),
+                    (long) result.cardinality(), categoryFacets, priceFacets);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private List<ProductMinDTO> page(BitSet result, Pageable pageable) {
+        List<ProductMinDTO> content = new ArrayList<>();
+        long skip = pageable.getOffset();
+        for (int i = result.nextSetBit(0); i >= 0 && content.size() < pageable.getPageSize(); i = result.nextSetBit(i + 1)) {
+            if (skip > 0) {
+                skip--;
+            } else {
+                content.add(documents.get(i));
+            }
+        }
+        return content;
+    }
+
+    private List<ProductMinDTO> sortedPage(BitSet result, Pageable pageable) {
+        List<ProductMinDTO> matches = new ArrayList<>(result.cardinality());
+        for (int i = result.nextSetBit(0); i >= 0; i = result.nextSetBit(i + 1)) {
+            matches.add(documents.get(i));
+        }
+        matches.sort(comparator(pageable.getSort()));
+        int from = (int) Math.min(pageable.getOffset(), matches.size());
+        int to = Math.min(from + pageable.getPageSize(), matches.size());
+        return new ArrayList<>(matches.subList(from, to));
+    }
+
+    private static Comparator<ProductMinDTO> comparator(Sort sort) {
+        Comparator<ProductMinDTO> result = null;
+        for (Sort.Order order : sort) {
+            Comparator<ProductMinDTO> next = switch (order.getProperty()) {
+                case "id" -> Comparator.comparing(ProductMinDTO::getId);
+                case "name" -> Comparator.comparing(ProductMinDTO::getName);
+                case "price" -> Comparator.comparing(ProductMinDTO::getPrice);
+                default -> throw new IllegalArgumentException("Unsupported sort property: " + order.getProperty());
+            };
+            if (order.isDescending()) {
+                next = next.reversed();
+            }
+            result = (result == null) ? next : result.thenComparing(next);
+        }
+        return result.thenComparing(ProductMinDTO::getId);
+    }
+
+    private BitSet toBits(long[] ids) {
+        BitSet bits = new BitSet();
+        for (long id : ids) {
+            Integer ordinal = ordinals.get(id);
+            if (ordinal != null) {
+                bits.set(ordinal);
+            }
+        }
+        return bits;
+    }
+
+    private BitSet matchCategories(Collection<Long> categoryIds) {
+        BitSet bits = new BitSet();
+        for (Long categoryId : categoryIds) {
+            BitSet category = byCategory.get(categoryId);
+            if (category != null) {
+                bits.or(category);
+            }
+        }
+        return bits;
+    }
+
+    private BitSet matchPrice(Double minPrice, Double maxPrice) {
+        double min = minPrice == null ? Double.NEGATIVE_INFINITY : minPrice;
+        double max = maxPrice == null ? Double.POSITIVE_INFINITY : maxPrice;
+        BitSet bits = new BitSet();
+        for (int b = 0; b < byPrice.length; b++) {
+            double lower = b == 0 ? Double.NEGATIVE_INFINITY : priceBounds[b - 1];
+            double upper = b == priceBounds.length ? Double.POSITIVE_INFINITY : priceBounds[b];
+            if (upper <= min || lower > max) {
+                continue;
+            }
+            if (lower >= min && upper <= max) {
+                bits.or(byPrice[b]);
+                continue;
+            }
+            BitSet bucket = byPrice[b];
+            for (int i = bucket.nextSetBit(0); i >= 0; i = bucket.nextSetBit(i + 1)) {
+                double price = documents.get(i).getPrice();
+                if (price >= min && price <= max) {
+                    bits.set(i);
+                }
+            }
+        }
+        return bits;
+    }
+
+    private static BitSet intersect(BitSet base, BitSet... filters) {
+        BitSet result = (BitSet) base.clone();
+        for (BitSet filter : filters) {
+            if (filter != null) {
+                result.and(filter);
+            }
+        }
+        return result;
+    }
+
+    private static long countBoth(BitSet a, BitSet b) {
+        BitSet both = (BitSet) a.clone();
+        both.and(b);
+        return both.cardinality();
+    }
+
+    private void put(ProductMinDTO document, Set<Long> categoryIds) {
+        Integer ordinal = ordinals.get(document.getId());
+        if (ordinal == null) {
+            ordinal = documents.size();
+            ordinals.put(document.getId(), ordinal);
+            documents.add(null);
+            documentCategories.add(null);
+        } else {
+            clearBits(ordinal);
+        }
+        documents.set(ordinal, document);
+        documentCategories.set(ordinal, categoryIds);
+        live.set(ordinal);
+        for (Long categoryId : categoryIds) {
+            byCategory.computeIfAbsent(categoryId, x -> new BitSet()).set(ordinal);
+        }
+        byPrice[bucketOf(document.getPrice())].set(ordinal);
+    }
+
+    private void remove(Long id) {
+        Integer ordinal = ordinals.remove(id);
+        if (ordinal == null) {
+            return;
+        }
+        clearBits(ordinal);
+        documents.set(ordinal, null);
+        documentCategories.set(ordinal, null);
+        deadOrdinals++;
+        if (deadOrdinals >= MIN_COMPACT_ORDINALS && deadOrdinals > ordinals.size()) {
+            compact();
+        }
+    }
+
+    // Renumbers the live products in id order, so the bitmaps and lists stay
+    // proportional to the catalog instead of to every product ever indexed.
+    private void compact() {
+        SortedMap<Long, Integer> byId = new TreeMap<>(ordinals);
+        List<ProductMinDTO> liveDocuments = new ArrayList<>(byId.size());
+        List<Set<Long>> liveCategories = new ArrayList<>(byId.size());
+        for (Integer ordinal : byId.values()) {
+            liveDocuments.add(documents.get(ordinal));
+            liveCategories.add(documentCategories.get(ordinal));
+        }
+        clear();
+        for (Long categoryId : new ArrayList<>(byCategory.keySet())) {
+            byCategory.put(categoryId, new BitSet());
+        }
+        for (int i = 0; i < liveDocuments.size(); i++) {
+            put(liveDocuments.get(i), liveCategories.get(i));
+        }
+    }
+
+    private void clear() {
+        ordinals.clear();
+        documents.clear();
+        documentCategories.clear();
+        live = new BitSet();
+        for (int i = 0; i < byPrice.length; i++) {
+            byPrice[i] = new BitSet();
+        }
+        deadOrdinals = 0;
+    }
+
+    private void clearBits(int ordinal) {
+        live.clear(ordinal);
+        for (Long categoryId : documentCategories.get(ordinal)) {
+            byCategory.get(categoryId).clear(ordinal);
+        }
+        byPrice[bucketOf(documents.get(ordinal).getPrice())].clear(ordinal);
+    }
+
+    private int bucketOf(double price) {
+        int bucket = 0;
+        while (bucket < priceBounds.length && price >= priceBounds[bucket]) {
+            bucket++;
+        }
+        return bucket;
+    }
+}
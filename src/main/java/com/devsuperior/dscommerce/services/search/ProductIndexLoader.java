@@ -0,0 +1,84 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds the in-memory catalog indexes when the application starts and keeps
+ * them in sync with product writes after they commit. The product rows are
+ * read once and handed to each index in turn. A write that commits after
+ * that read would be wiped by the rebuild, so changes are queued from before
+ * the read until every index is rebuilt, and replayed on top of it.
+ */
+@Component
+public class ProductIndexLoader {
+
+    @Autowired
+    private ProductRepository repository;
+
+    @Autowired
+    private ProductSearchIndex searchIndex;
+
+    @Autowired
+    private ProductSuggestIndex suggestIndex;
+
+    @Autowired
+    private ProductFacetIndex facetIndex;
+
+    private final Object monitor = new Object();
+
+    // Not null while the indexes are not built yet or being rebuilt.
+    private List<ProductChangedEvent> queued = new ArrayList<>();
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Transactional(readOnly = true)
+    public void load() {
+        synchronized (monitor) {
+            if (queued == null) {
+                queued = new ArrayList<>();
+            }
+        }
+        try {
+            List<ProductIndexProjection> rows = repository.findAllForIndex();
+            searchIndex.rebuild(rows);
+            suggestIndex.rebuild(rows);
+            facetIndex.rebuild(rows);
+        } finally {
+            synchronized (monitor) {
+                for (ProductChangedEvent event : queued) {
+                    apply(event);
+                }
+                queued = null;
+            }
+        }
+    }
+
+    @Order(0)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onProductChanged(ProductChangedEvent event) {
+        synchronized (monitor) {
+            if (queued != null) {
+                queued.add(event);
+            } else {
+                apply(event);
+            }
+        }
+    }
+
+    private void apply(ProductChangedEvent event) {
+        searchIndex.onProductChanged(event);
+        suggestIndex.onProductChanged(event);
+        facetIndex.onProductChanged(event);
+    }
+}
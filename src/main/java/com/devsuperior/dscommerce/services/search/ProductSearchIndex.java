@@ -0,0 +1,127 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Name-only trigram substring index, used by the catalog search instead of
+ * the LIKE scan. It does not rank results and does not read descriptions: it
+ * keeps the semantics of the query it replaces, so a product matches when its
+ * name contains the text, ignoring case, and results come in id order. Every
+ * trigram of the text must appear in the name, so the posting lists narrow the
+ * candidates and a contains check on those confirms the match. Built and kept
+ * in sync by {@link ProductIndexLoader}.
+ */
+@Component
+public class ProductSearchIndex {
+
+    private static final int GRAM = 3;
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramPostings index = new TrigramPostings(ProductSearchIndex::trigrams);
+
+    private volatile boolean ready;
+
+    public void rebuild(List<ProductIndexProjection> rows) {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (ProductIndexProjection row : rows) {
+                add(new ProductMinDTO(row.getId(), row.getName(), row.getPrice(), row.getImgUrl()));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.remove(event.getId());
+            if (!event.isDeleted()) {
+                ProductDTO dto = event.getProduct();
+                add(new ProductMinDTO(dto.getId(), dto.getName(), dto.getPrice(), dto.getImgUrl()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public Page<ProductMinDTO> search(String text, Pageable pageable) {
+        lock.readLock().lock();
+        try {
+            long[] ids = match(text);
+            int from = 0;
+            int to = ids.length;
+            if (pageable.isPaged()) {
+                from = (int) Math.min(pageable.getOffset(), ids.length);
+                to = Math.min(from + pageable.getPageSize(), ids.length);
+            }
+            List<ProductMinDTO> content = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                content.add(index.document(ids[i]));
+            }
+            return new PageImpl<>(content, pageable, ids.length);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Ids of the products whose name contains the text, ignoring case, in
+     * ascending order.
+     */
+    public long[] matchingIds(String text) {
+        lock.readLock().lock();
+        try {
+            return match(text);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // A query shorter than a trigram has none, so every name is a candidate.
+    private long[] match(String text) {
+        String query = lowerCase(text);
+        long[] candidates = index.candidates(query);
+        long[] result = new long[candidates.length];
+        int size = 0;
+        for (long id : candidates) {
+            if (index.key(id).contains(query)) {
+                result[size++] = id;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    private void add(ProductMinDTO document) {
+        index.add(document, lowerCase(document.getName()));
+    }
+
+    private static String lowerCase(String text) {
+        return text == null ? "" : text.toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<Long> trigrams(String text) {
+        Set<Long> result = new HashSet<>();
+        for (int i = 0; i + GRAM <= text.length(); i++) {
+            result.add(TrigramPostings.pack(text.charAt(i), text.charAt(i + 1), text.charAt(i + 2)));
+        }
+        return result;
+    }
+}
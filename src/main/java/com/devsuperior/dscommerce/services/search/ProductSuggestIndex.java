@@ -0,0 +1,135 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import org.springframework.stereotype.Component;
+
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Trigram index over product names for typeahead. Every name token is padded
+ * with two leading markers, so a query token matches name tokens that start
+ * with it, and queries of one or two characters still produce a trigram.
+ * Postings are kept in a {@link TrigramPostings}, as in the search index.
+ */
+@Component
+public class ProductSuggestIndex {
+
+    private static final char PAD = '$';
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final TrigramPostings index = new TrigramPostings(ProductSuggestIndex::trigrams);
+
+    private volatile boolean ready;
+
+    public void rebuild(List<ProductIndexProjection> rows) {
+        lock.writeLock().lock();
+        try {
+            index.clear();
+            for (ProductIndexProjection row : rows) {
+                add(new ProductMinDTO(row.getId(), row.getName(), row.getPrice(), row.getImgUrl()));
+            }
+            ready = true;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void onProductChanged(ProductChangedEvent event) {
+        lock.writeLock().lock();
+        try {
+            index.remove(event.getId());
+            if (!event.isDeleted()) {
+                ProductDTO dto = event.getProduct();
+                add(new ProductMinDTO(dto.getId(), dto.getName(), dto.getPrice(), dto.getImgUrl()));
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    public List<ProductMinDTO> suggest(String text, int limit) {
+        List<String> tokens = TextNormalizer.tokenize(text);
+        if (tokens.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        String phrase = String.join(" ", tokens);
+
+        lock.readLock().lock();
+        try {
+            long[] candidates = index.candidates(phrase);
+            if (candidates.length == 0) {
+                return List.of();
+            }
+
+            Comparator<Match> ranking = Comparator.comparing((Match m) -> !m.name.startsWith(phrase))
+                    .thenComparingInt(m -> m.name.length())
+                    .thenComparingLong(m -> m.id);
+            PriorityQueue<Match> top = new PriorityQueue<>(limit + 1, ranking.reversed());
+            for (long id : candidates) {
+                String name = index.key(id);
+                if (containsAllPrefixes(name, tokens)) {
+                    top.add(new Match(id, name));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            }
+
+            List<Match> ordered = new ArrayList<>(top);
+            ordered.sort(ranking);
+            List<ProductMinDTO> result = new ArrayList<>(ordered.size());
+            for (Match match : ordered) {
+                result.add(index.document(match.id));
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private boolean containsAllPrefixes(String name, List<String> tokens) {
+        String padded = " " + name;
+        for (String token : tokens) {
+            if (!padded.contains(" " + token)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void add(ProductMinDTO document) {
+        index.add(document, String.join(" ", TextNormalizer.tokenize(document.getName())));
+    }
+
+    // Keys are normalized tokens joined by single spaces.
+    private static Set<Long> trigrams(String key) {
+        Set<Long> result = new LinkedHashSet<>();
+        for (String token : TextNormalizer.tokenize(key)) {
+            String padded = "" + PAD + PAD + token;
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                result.add(TrigramPostings.pack(padded.charAt(i), padded.charAt(i + 1), padded.charAt(i + 2)));
+            }
+        }
+        return result;
+    }
+
+    private static class Match {
+
+        private final long id;
+        private final String name;
+
+        Match(long id, String name) {
+            this.id = id;
+            this.name = name;
+        }
+    }
+}
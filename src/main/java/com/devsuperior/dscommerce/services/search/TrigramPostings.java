@@ -0,0 +1,103 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+
+import java.util.*;
+import java.util.function.Function;
+
+/**
+ * Trigram posting lists over one normalized key per product, shared by the
+ * search and suggest indexes. Each index decides how a key is normalized and
+ * which trigrams it yields; this class keeps the postings, the documents and
+ * the keys in step and intersects the postings of a query. It is not thread
+ * safe: callers hold their own lock.
+ */
+class TrigramPostings {
+
+    private final Function<String, Set<Long>> trigrams;
+    private final Map<Long, LongPostingList> postings = new HashMap<>();
+    private final NavigableMap<Long, ProductMinDTO> documents = new TreeMap<>();
+    private final Map<Long, String> keys = new HashMap<>();
+
+    TrigramPostings(Function<String, Set<Long>> trigrams) {
+        this.trigrams = trigrams;
+    }
+
+    static long pack(char a, char b, char c) {
+        return ((long) a << 32) | ((long) b << 16) | c;
+    }
+
+    void clear() {
+        postings.clear();
+        documents.clear();
+        keys.clear();
+    }
+
+    void add(ProductMinDTO document, String key) {
+        long id = document.getId();
+        for (long trigram : trigrams.apply(key)) {
+            postings.computeIfAbsent(trigram, x -> new LongPostingList()).add(id);
+        }
+        documents.put(id, document);
+        keys.put(id, key);
+    }
+
+    void remove(Long id) {
+        String key = keys.remove(id);
+        if (key == null) {
+            return;
+        }
+        for (long trigram : trigrams.apply(key)) {
+            LongPostingList list = postings.get(trigram);
+            list.remove(id);
+            if (list.isEmpty()) {
+                postings.remove(trigram);
+            }
+        }
+        documents.remove(id);
+    }
+
+    /**
+     * Ids in ascending order whose key has every trigram of the query key. The
+     * caller still has to confirm each candidate against its key.
+     */
+    long[] candidates(String queryKey) {
+        List<LongPostingList> lists = new ArrayList<>();
+        for (long trigram : trigrams.apply(queryKey)) {
+            LongPostingList list = postings.get(trigram);
+            if (list == null) {
+                return new long[0];
+            }
+            lists.add(list);
+        }
+        if (lists.isEmpty()) {
+            return allIds();
+        }
+        lists.sort(Comparator.comparingInt(LongPostingList::size));
+        long[] candidates = null;
+        for (LongPostingList list : lists) {
+            candidates = (candidates == null) ? list.toArray() : list.intersect(candidates);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    long[] allIds() {
+        long[] ids = new long[documents.size()];
+        int i = 0;
+        for (Long id : documents.keySet()) {
+            ids[i++] = id;
+        }
+        return ids;
+    }
+
+    String key(long id) {
+        return keys.get(id);
+    }
+
+    ProductMinDTO document(long id) {
+        return documents.get(id);
+    }
+}
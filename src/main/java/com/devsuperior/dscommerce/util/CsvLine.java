@@ -0,0 +1,77 @@
+package com.devsuperior.dscommerce.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits and joins single CSV records (RFC 4180 quoting). Quoted fields may
+ * contain separators, doubled quotes and line breaks; a reader going line by
+ * line uses isComplete to know when a record continues on the next line.
+ */
+public final class CsvLine {
+
+    private CsvLine() {
+    }
+
+    public static List<String> parse(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("Unterminated quoted field");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+
+    /**
+     * Whether the text holds a whole record, that is, it does not end inside a
+     * quoted field. Doubled quotes add two to the count, so an odd number of
+     * quote characters means a field is still open.
+     */
+    public static boolean isComplete(String text) {
+        int quotes = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) == '"') {
+                quotes++;
+            }
+        }
+        return quotes % 2 == 0;
+    }
+
+    public static String format(Object... fields) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            String value = fields[i] == null ? "" : fields[i].toString();
+            if (value.contains(",") || value.contains("\"") || value.contains("\n") || value.contains("\r")) {
+                sb.append('"').append(value.replace("\"", "\"\"")).append('"');
+            } else {
+                sb.append(value);
+            }
+        }
+        return sb.toString();
+    }
+}
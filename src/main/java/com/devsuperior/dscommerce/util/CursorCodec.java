@@ -0,0 +1,38 @@
+package com.devsuperior.dscommerce.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Encodes keyset positions as opaque, URL-safe tokens. Each part is encoded on
+ * its own so values may contain any character.
+ */
+public final class CursorCodec {
+
+    private static final String SEPARATOR = ".";
+
+    private CursorCodec() {
+    }
+
+    public static String encode(String... parts) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (sb.length() > 0) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(Base64.getUrlEncoder().withoutPadding().encodeToString(part.getBytes(StandardCharsets.UTF_8)));
+        }
+        return sb.toString();
+    }
+
+    public static String[] decode(String cursor, int expectedParts) {
+        String[] parts = cursor.split("\\" + SEPARATOR, -1);
+        if (parts.length != expectedParts) {
+            throw new IllegalArgumentException("Unexpected cursor format");
+        }
+        for (int i = 0; i < parts.length; i++) {
+            parts[i] = new String(Base64.getUrlDecoder().decode(parts[i]), StandardCharsets.UTF_8);
+        }
+        return parts;
+    }
+}
@@ -0,0 +1,61 @@
+package com.devsuperior.dscommerce.util;
+
+/**
+ * Builds strong entity tags. Compressed bodies get their own tag, since a
+ * strong tag identifies the exact bytes sent.
+ */
+public final class ETags {
+
+    private static final String SEPARATOR = "-";
+
+    private ETags() {
+    }
+
+    public static String of(Object... parts) {
+        StringBuilder sb = new StringBuilder("\"");
+        for (Object part : parts) {
+            if (sb.length() > 1) {
+                sb.append(SEPARATOR);
+            }
+            sb.append(part);
+        }
+        return sb.append('"').toString();
+    }
+
+    public static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null || etag == null) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.startsWith("W/")) {
+                candidate = candidate.substring(2);
+            }
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Strong comparison, as If-Match requires: weak tags never match, so a
+     * client cannot update based on a representation it only knows loosely.
+     */
+    public static boolean matchesStrong(String ifMatch, String etag) {
+        if (ifMatch == null || etag == null || etag.startsWith("W/")) {
+            return false;
+        }
+        for (String candidate : ifMatch.split(",")) {
+            candidate = candidate.trim();
+            if (candidate.equals("*") || candidate.equals(etag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public static String gzip(String etag) {
+        return etag.substring(0, etag.length() - 1) + SEPARATOR + "gzip\"";
+    }
+}
@@ -1,13 +1,21 @@
 package com.devsuperior.dscommerce.it;
 
 import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
 import com.devsuperior.dscommerce.entities.*;
+import com.devsuperior.dscommerce.repositories.OutboxMessageRepository;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
 import com.devsuperior.dscommerce.tests.ProductFactory;
+import com.devsuperior.dscommerce.tests.SqlStatementRecorder;
 import com.devsuperior.dscommerce.tests.TokenUtil;
 import com.devsuperior.dscommerce.tests.UserFactory;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestMethodOrder;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
@@ -18,6 +26,8 @@ import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.time.Instant;
+import java.util.List;
+import java.util.stream.LongStream;
 
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
@@ -25,10 +35,14 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.devsuperior.dscommerce.tests.SqlStatementRecorder")
 @AutoConfigureMockMvc
 @Transactional
+@TestMethodOrder(MethodOrderer.OrderAnnotation.class)
 public class OrderControllerIT {
+
+    private static final int RUN_LAST = Integer.MAX_VALUE;
+
     @Autowired
     private MockMvc mockMvc;
 
@@ -38,6 +52,12 @@ public class OrderControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private OutboxMessageRepository outboxRepository;
+
     private String clientUsername, clientPassword, adminUsername, adminPassword, adminOnlyUsername, adminOnlyPassword;
     private String clientToken, adminToken, adminOnlyToken, invalidToken;
     private Long existingOrderId, nonExistingOrderId;
@@ -112,6 +132,23 @@ public class OrderControllerIT {
         result.andExpect(jsonPath("$.total").exists());
     }
 
+    @Test
+    public void findByIdShouldLoadOrderDetailsWithFixedNumberOfQueries() throws Exception {
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(get("/orders/{id}", existingOrderId).header("Authorization", "Bearer " + adminToken)
+                        .accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.client.name").value("maria@gmail.com"));
+        result.andExpect(jsonPath("$.payment").exists());
+        result.andExpect(jsonPath("$.items.length()").value(2));
+        // one query for the logged user and its roles, one for the order graph
+        Assertions.assertEquals(2, statements.size(), statements.toString());
+    }
+
     @Test
     public void findByIdShouldReturnForbiddenWhenIdExistsAndAdminLoggedAndOrderDoesNotBelongUser() throws Exception {
 
@@ -154,6 +191,66 @@ public class OrderControllerIT {
         result.andExpect(status().isUnauthorized());
     }
 
+    @Test
+    public void findMineShouldPageLoggedClientOrdersNewestFirst() throws Exception {
+
+        String firstWindow =
+                mockMvc.perform(get("/orders/me?size=1").header("Authorization", "Bearer " + clientToken)
+                                .accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isOk())
+                        .andExpect(jsonPath("$.content.length()").value(1))
+                        .andExpect(jsonPath("$.content[0].id").value(3L))
+                        .andExpect(jsonPath("$.content[0].status").value("WAITING_PAYMENT"))
+                        .andExpect(jsonPath("$.content[0].itemCount").value(1))
+                        .andExpect(jsonPath("$.content[0].total").value(90.5))
+                        .andExpect(jsonPath("$.hasNext").value(true))
+                        .andReturn().getResponse().getContentAsString();
+        String cursor = objectMapper.readTree(firstWindow).get("nextCursor").asText();
+
+        ResultActions result =
+                mockMvc.perform(get("/orders/me?size=1&after={after}", cursor).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content[0].itemCount").value(2));
+        result.andExpect(jsonPath("$.content[0].total").value(1431.0));
+        result.andExpect(jsonPath("$.hasNext").value(false));
+    }
+
+    @Test
+    public void findMineShouldReturnBadRequestWhenCursorIsInvalid() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(get("/orders/me?after=xpto").header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findByClientShouldReturnClientOrdersWhenAdminLogged() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(get("/orders?clientId=2").header("Authorization", "Bearer " + adminToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(1));
+        result.andExpect(jsonPath("$.content[0].id").value(2L));
+        result.andExpect(jsonPath("$.content[0].total").value(1250.0));
+    }
+
+    @Test
+    public void findByClientShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(get("/orders?clientId=2").header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+
     @Test
     public void insertShouldReturnOrderDTOCreatedWhenClientLogged() throws Exception {
 
@@ -173,6 +270,100 @@ public class OrderControllerIT {
         result.andExpect(jsonPath("$.total").exists());
     }
 
+    // Runs after the other tests: pooled ids are not given back on rollback, and
+    // insertShouldReturnOrderDTOCreatedWhenClientLogged expects the first free order id.
+    @Test
+    @org.junit.jupiter.api.Order(RUN_LAST)
+    public void insertShouldWriteAllItemsWithOneBatchedInsert() throws Exception {
+
+        orderDTO.getItems().add(new OrderItemDTO(2L, null, 0.0, 1, null));
+        orderDTO.getItems().add(new OrderItemDTO(3L, null, 0.0, 1, null));
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+        entityManager.flush();
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isCreated());
+        // the three items go out as one JDBC batch, with no select before each insert
+        long itemInserts = statements.stream().filter(sql -> sql.startsWith("insert into tb_order_item")).count();
+        Assertions.assertEquals(1, itemInserts, statements.toString());
+        Assertions.assertTrue(statements.stream().noneMatch(sql -> sql.startsWith("select") && sql.contains("tb_order_item")));
+    }
+
+    @Test
+    @org.junit.jupiter.api.Order(RUN_LAST)
+    public void insertShouldWriteOrderCreatedEventToOutbox() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        String response =
+                mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                                .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                        .andExpect(status().isCreated())
+                        .andReturn().getResponse().getContentAsString();
+        Long orderId = objectMapper.readTree(response).get("id").asLong();
+
+        List<OutboxMessage> events = outboxRepository.findByAggregateIdOrderById(orderId);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(OrderOutbox.ORDER_CREATED, events.get(0).getType());
+    }
+
+    @Test
+    public void insertShouldLookUpAllItemProductsWithOneQueryAndListMissingOnes() throws Exception {
+
+        orderDTO.getItems().clear();
+        for (long id = 1; id <= 50; id++) {
+            orderDTO.getItems().add(new OrderItemDTO(id, null, 0.0, 1, null));
+        }
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isNotFound());
+        result.andExpect(jsonPath("$.error").value("Produtos não encontrados: "
+                + LongStream.rangeClosed(26, 50).boxed().toList()));
+        long productSelects = statements.stream().filter(sql -> sql.contains("tb_product ")).count();
+        Assertions.assertEquals(1, productSelects, statements.toString());
+    }
+
+    @Test
+    public void insertShouldReturnConflictWhenStockIsInsufficient() throws Exception {
+
+        orderDTO.getItems().clear();
+        orderDTO.getItems().add(new OrderItemDTO(1L, null, 0.0, 101, null));
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        ResultActions result =
+                mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+        result.andExpect(jsonPath("$.error").value("Estoque insuficiente para os produtos: [1]"));
+    }
+
+    @Test
+    public void insertShouldReturnUnprocessableEntityWhenItemQuantityIsNotPositive() throws Exception {
+
+        orderDTO.getItems().clear();
+        orderDTO.getItems().add(new OrderItemDTO(1L, null, 0.0, 0, null));
+        String jsonBody = objectMapper.writeValueAsString(orderDTO);
+
+        ResultActions result =
+                mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableEntity());
+        result.andExpect(jsonPath("$.errors[0].fieldName").value("items[0].quantity"));
+    }
+
     @Test
     public void insertShouldReturnUnprocessableEntityWhenClientLoggedAndOrderHasNoItem() throws Exception {
 
@@ -211,4 +402,72 @@ public class OrderControllerIT {
 
         result.andExpect(status().isUnauthorized());
     }
-}
\ No newline at end of file
+
+    @Test
+    public void cancelShouldReturnCanceledOrderAndReleaseStockWhenOrderIsWaitingPayment() throws Exception {
+
+        Long waitingOrderId = 3L;
+
+        ResultActions result =
+                mockMvc.perform(post("/orders/{id}/cancel", waitingOrderId).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.id").value(waitingOrderId));
+        result.andExpect(jsonPath("$.status").value("CANCELED"));
+        mockMvc.perform(get("/products/{id}/stock", 1L).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.stock").value(101));
+    }
+
+    @Test
+    public void cancelShouldUpdateOrderStatusWithOneStatement() throws Exception {
+
+        SqlStatementRecorder.start();
+        mockMvc.perform(post("/orders/{id}/cancel", 3L).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+        entityManager.flush();
+        List<String> statements = SqlStatementRecorder.stop();
+
+        long orderUpdates = statements.stream().filter(sql -> sql.startsWith("update tb_order ")).count();
+        Assertions.assertEquals(1, orderUpdates, statements.toString());
+    }
+
+    @Test
+    public void cancelShouldWriteStatusChangedEventToOutbox() throws Exception {
+
+        Long waitingOrderId = 3L;
+
+        mockMvc.perform(post("/orders/{id}/cancel", waitingOrderId).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk());
+
+        List<OutboxMessage> events = outboxRepository.findByAggregateIdOrderById(waitingOrderId);
+        Assertions.assertEquals(1, events.size());
+        Assertions.assertEquals(OrderOutbox.ORDER_STATUS_CHANGED, events.get(0).getType());
+        Assertions.assertTrue(events.get(0).getPayload().contains("\"status\":\"CANCELED\""));
+    }
+
+    @Test
+    public void cancelShouldReturnConflictWhenOrderIsNotWaitingPayment() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(post("/orders/{id}/cancel", existingOrderId).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    public void cancelShouldReturnForbiddenWhenOrderBelongsToOtherClient() throws Exception {
+
+        Long otherOrderId = 2L;
+
+        ResultActions result =
+                mockMvc.perform(post("/orders/{id}/cancel", otherOrderId).header("Authorization", "Bearer " + clientToken)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+}
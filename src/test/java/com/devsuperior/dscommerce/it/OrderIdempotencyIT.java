@@ -0,0 +1,78 @@
+package com.devsuperior.dscommerce.it;
+
+import com.devsuperior.dscommerce.tests.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class OrderIdempotencyIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    private String clientToken;
+    private String orderJson, otherOrderJson;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        orderJson = "{\"items\": [{\"productId\": 1, \"quantity\": 2}]}";
+        otherOrderJson = "{\"items\": [{\"productId\": 1, \"quantity\": 3}]}";
+    }
+
+    @Test
+    public void insertShouldReturnSameOrderWhenIdempotencyKeyIsRepeated() throws Exception {
+
+        String first = performInsert("retry-key", orderJson)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+        String second = performInsert("retry-key", orderJson)
+                .andExpect(status().isCreated())
+                .andReturn().getResponse().getContentAsString();
+
+        Assertions.assertEquals(objectMapper.readTree(first).get("id").asLong(),
+                objectMapper.readTree(second).get("id").asLong());
+    }
+
+    @Test
+    public void insertShouldReturnConflictWhenIdempotencyKeyIsReusedWithOtherItems() throws Exception {
+
+        performInsert("reused-key", orderJson).andExpect(status().isCreated());
+        performInsert("reused-key", otherOrderJson).andExpect(status().isConflict());
+    }
+
+    @Test
+    public void insertShouldReturnBadRequestWhenIdempotencyKeyIsBlank() throws Exception {
+
+        performInsert(" ", orderJson).andExpect(status().isBadRequest());
+    }
+
+    private ResultActions performInsert(String key, String body) throws Exception {
+        return mockMvc.perform(post("/orders")
+                .header("Authorization", "Bearer " + clientToken)
+                .header("Idempotency-Key", key)
+                .content(body)
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_JSON));
+    }
+}
@@ -0,0 +1,97 @@
+package com.devsuperior.dscommerce.it;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+// Not @Transactional: every writer has to commit for the race to be real.
+@SpringBootTest
+public class ProductConcurrencyIT {
+
+    private static final int WRITERS = 8;
+
+    @Autowired
+    private ProductService service;
+
+    @Autowired
+    private ProductRepository repository;
+
+    private Long productId;
+    private ProductDTO original;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productId = 20L;
+        original = new ProductDTO(repository.findWithCategoriesById(productId).orElseThrow());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.update(productId, withPrice(original, original.getPrice()));
+    }
+
+    @Test
+    public void concurrentUpdatesWithSameIfMatchShouldLetExactlyOneWriterWin() throws Exception {
+        String etag = service.productETag(original);
+        CountDownLatch ready = new CountDownLatch(WRITERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+
+        List<Future<ProductDTO>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < WRITERS; i++) {
+                ProductDTO dto = withPrice(original, original.getPrice() + i + 1);
+                Callable<ProductDTO> writer = () -> {
+                    ready.countDown();
+                    start.await();
+                    return service.update(productId, dto, etag);
+                };
+                results.add(executor.submit(writer));
+            }
+            Assertions.assertTrue(ready.await(10, TimeUnit.SECONDS));
+            start.countDown();
+
+            int succeeded = 0;
+            int conflicted = 0;
+            for (Future<ProductDTO> result : results) {
+                try {
+                    result.get(30, TimeUnit.SECONDS);
+                    succeeded++;
+                } catch (ExecutionException e) {
+                    Assertions.assertInstanceOf(ConflictException.class, e.getCause());
+                    conflicted++;
+                }
+            }
+
+            Assertions.assertEquals(1, succeeded);
+            Assertions.assertEquals(WRITERS - 1, conflicted);
+            Assertions.assertEquals(original.getVersion() + 1, repository.findVersionById(productId).orElseThrow());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private ProductDTO withPrice(ProductDTO source, Double price) {
+        ProductDTO dto = new ProductDTO(source.getId(), source.getName(), source.getDescription(), price,
+                source.getImgUrl());
+        dto.getCategories().addAll(source.getCategories());
+        return dto;
+    }
+}
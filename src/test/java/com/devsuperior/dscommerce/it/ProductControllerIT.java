@@ -3,26 +3,39 @@ package com.devsuperior.dscommerce.it;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.services.cache.ProductCache;
+import com.devsuperior.dscommerce.services.cache.ProductJsonCache;
+import com.devsuperior.dscommerce.tests.SqlStatementRecorder;
 import com.devsuperior.dscommerce.tests.TokenUtil;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hamcrest.Matchers;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.result.MockMvcResultHandlers;
 import org.springframework.transaction.annotation.Propagation;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.zip.GZIPInputStream;
+
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 
-@SpringBootTest
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.devsuperior.dscommerce.tests.SqlStatementRecorder")
 @AutoConfigureMockMvc
 @Transactional
 public class ProductControllerIT {
@@ -35,6 +48,12 @@ public class ProductControllerIT {
     @Autowired
     private ObjectMapper objectMapper;
 
+    @Autowired
+    private ProductJsonCache jsonCache;
+
+    @Autowired
+    private ProductCache productCache;
+
     private Long exitingProductId, nonExitingProductId, dependentProductId;
     private String clientUsername, clientPassword, adminUsername, adminPassword;
     private String clientToken, adminToken, invalidToken;
@@ -90,6 +109,117 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.content[0].imgUrl").value("https://raw.githubusercontent.com/devsuperior/dscatalog-resources/master/backend/img/3-big.jpg"));
     }
 
+    @Test
+    public void findAllShouldNotSelectDescriptionColumn() throws Exception {
+
+        jsonCache.invalidateAll();
+        SqlStatementRecorder.start();
+        ResultActions result = mockMvc.perform(get("/products?size=5").accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        Assertions.assertFalse(statements.isEmpty());
+        for (String sql : statements) {
+            Assertions.assertFalse(sql.toLowerCase().contains("description"), sql);
+        }
+    }
+
+    @Test
+    public void findAllShouldReturnSliceWithoutTotalsWhenCountIsFalse() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products?count=false&size=5").accept(MediaType.APPLICATION_JSON));
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content.length()").value(5));
+        result.andExpect(jsonPath("$.hasNext").value(true));
+        result.andExpect(jsonPath("$.totalElements").doesNotExist());
+    }
+
+    @Test
+    public void findAllAfterShouldReturnFirstWindowWhenCursorIsEmpty() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products?after=&size=3").accept(MediaType.APPLICATION_JSON));
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content.length()").value(3));
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content[2].id").value(3L));
+        result.andExpect(jsonPath("$.hasNext").value(true));
+        result.andExpect(jsonPath("$.nextCursor").exists());
+    }
+
+    @Test
+    public void findAllAfterShouldContinueFromNextCursor() throws Exception {
+
+        String firstWindow = mockMvc.perform(get("/products?after=&size=3").accept(MediaType.APPLICATION_JSON))
+                .andReturn().getResponse().getContentAsString();
+        String nextCursor = objectMapper.readTree(firstWindow).get("nextCursor").asText();
+
+        ResultActions result = mockMvc.perform(get("/products?after={cursor}&size=3", nextCursor).accept(MediaType.APPLICATION_JSON));
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.content[0].id").value(4L));
+        result.andExpect(jsonPath("$.content[2].id").value(6L));
+    }
+
+    @Test
+    public void findAllAfterShouldReturnBadRequestWhenCursorIsInvalid() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products?after=xpto").accept(MediaType.APPLICATION_JSON));
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void filterShouldReturnProductsAndFacetsForSelectedCategories() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/filter?categoryId=1&categoryId=2")
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(3));
+        result.andExpect(jsonPath("$.content[0].id").value(1L));
+        result.andExpect(jsonPath("$.content[1].id").value(2L));
+        result.andExpect(jsonPath("$.content[2].id").value(5L));
+        result.andExpect(jsonPath("$.categories[2].name").value("Computadores"));
+        result.andExpect(jsonPath("$.categories[2].count").value(23));
+        result.andExpect(jsonPath("$.prices[0].count").value(1));
+    }
+
+    @Test
+    public void filterShouldCombineCategoryAndPriceRange() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/filter?categoryId=3&maxPrice=1300")
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.totalElements").value(3));
+        result.andExpect(jsonPath("$.content[0].name").value("Macbook Pro"));
+    }
+
+    @Test
+    public void filterShouldReturnBadRequestWhenPriceRangeIsInverted() throws Exception {
+
+        ResultActions result = mockMvc.perform(get("/products/filter?minPrice=500&maxPrice=100")
+                .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isBadRequest());
+    }
+
+    @Test
+    public void findAllByIdsShouldReturnProductsInRequestOrderWithOneQuery() throws Exception {
+        productCache.invalidateAll();
+
+        SqlStatementRecorder.start();
+        ResultActions result = mockMvc.perform(get("/products?ids=3,1,1000,2").accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.length()").value(3));
+        result.andExpect(jsonPath("$[0].name").value("Macbook Pro"));
+        result.andExpect(jsonPath("$[1].id").value(1L));
+        result.andExpect(jsonPath("$[2].name").value("Smart TV"));
+        result.andExpect(jsonPath("$[2].categories.length()").value(2));
+        Assertions.assertEquals(1, statements.size(), statements.toString());
+    }
+
     @Test
     public void findByIdShouldReturnProductDTOWhenIdExists() throws Exception {
 
@@ -103,6 +233,91 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.categories").exists());
     }
 
+    @Test
+    public void findByIdShouldLoadProductAndCategoriesWithOneQuery() throws Exception {
+        productCache.invalidateAll();
+        jsonCache.invalidateAll();
+
+        SqlStatementRecorder.start();
+        ResultActions result = mockMvc.perform(get("/products/{id}", exitingProductId).accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.categories.length()").value(2));
+        Assertions.assertEquals(1, statements.size(), statements.toString());
+    }
+
+    @Test
+    public void findByIdShouldReturnGzipBodyWhenClientAcceptsGzip() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/products/{id}", exitingProductId)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "gzip, deflate"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CONTENT_ENCODING, "gzip"))
+                .andReturn();
+
+        byte[] body = result.getResponse().getContentAsByteArray();
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(body))) {
+            ProductDTO dto = objectMapper.readValue(in, ProductDTO.class);
+            Assertions.assertEquals(2L, dto.getId());
+            Assertions.assertEquals("Smart TV", dto.getName());
+        }
+    }
+
+    @Test
+    public void findByIdShouldReturnIdentityBodyWhenClientRefusesGzip() throws Exception {
+
+        MvcResult result = mockMvc.perform(get("/products/{id}", exitingProductId)
+                        .accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.ACCEPT_ENCODING, "identity, gzip;q=0"))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.CONTENT_ENCODING))
+                .andExpect(jsonPath("$.name").value("Smart TV"))
+                .andReturn();
+
+        Assertions.assertFalse(result.getResponse().getHeader(HttpHeaders.ETAG).contains("gzip"));
+    }
+
+    @Test
+    public void findByIdShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        MvcResult first = mockMvc.perform(get("/products/{id}", exitingProductId).accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.version").value(0))
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+        Assertions.assertNotNull(etag);
+
+        jsonCache.invalidateAll();
+        mockMvc.perform(get("/products/{id}", exitingProductId).accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag));
+    }
+
+    @Test
+    public void findByIdShouldReturnBodyWhenETagIsStale() throws Exception {
+
+        mockMvc.perform(get("/products/{id}", exitingProductId).accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, "\"p2-99\""))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.name").value("Smart TV"));
+    }
+
+    @Test
+    public void findAllShouldReturnNotModifiedWhenETagMatches() throws Exception {
+
+        MvcResult first = mockMvc.perform(get("/products?size=5").accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn();
+        String etag = first.getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/products?size=5").accept(MediaType.APPLICATION_JSON)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
     @Test
     public void findByIdShouldReturnNotFoundWhenIdDoesNoExist() throws Exception {
 
@@ -122,7 +337,9 @@ public class ProductControllerIT {
                         .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON)).andDo(MockMvcResultHandlers.print());
 
         result.andExpect(status().isCreated());
-        result.andExpect(jsonPath("$.id").value(26L));
+        // ids come from pooled sequence blocks that other IT classes may
+        // already have used, so only check that it follows the seed rows
+        result.andExpect(jsonPath("$.id").value(Matchers.greaterThan(25)));
         result.andExpect(jsonPath("$.name").value("Console PlayStation 5"));
         result.andExpect(jsonPath("$.description").value("Lorem ipsum dolor sit amet, consectetur adipiscing elit"));
         result.andExpect(jsonPath("$.price").value(3999.90));
@@ -130,6 +347,21 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.categories[0].id").value(2L));
     }
 
+    @Test
+    public void insertShouldReturnUnprocessableEntityWhenAdminLoggedAndCategoryDoesNotExist() throws Exception {
+
+        product.getCategories().add(new Category(1000L, null));
+        productDTO = new ProductDTO(product);
+
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        ResultActions result =
+                mockMvc.perform(post("/products").header("Authorization", "Bearer " + adminToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableEntity());
+    }
+
     @Test
     public void insertShouldReturnUnprocessableEntityWhenAdminLoggedAndInvalidName() throws Exception {
 
@@ -247,6 +479,122 @@ public class ProductControllerIT {
         result.andExpect(jsonPath("$.categories[0].id").value(2L));
     }
 
+    @Test
+    public void updateShouldReturnNewETagWhenIfMatchIsCurrent() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .header(HttpHeaders.IF_MATCH, "\"p2-0\"")
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.version").value(1));
+        result.andExpect(header().string(HttpHeaders.ETAG, "\"p2-1\""));
+    }
+
+    @Test
+    public void updateShouldReturnConflictWhenIfMatchIsStale() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .header(HttpHeaders.IF_MATCH, "\"p2-7\"")
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+        result.andExpect(jsonPath("$.error").value("Produto alterado por outra requisição"));
+    }
+
+    @Test
+    public void updateShouldReturnConflictWhenIfMatchIsWeakOrCompressedVariant() throws Exception {
+
+        String jsonBody = objectMapper.writeValueAsString(productDTO);
+
+        for (String ifMatch : List.of("W/\"p2-0\"", "\"p2-0-gzip\"")) {
+            mockMvc.perform(put("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                            .header(HttpHeaders.IF_MATCH, ifMatch)
+                            .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isConflict());
+        }
+    }
+
+    @Test
+    public void updateShouldReturnConflictWhenBodyVersionIsStale() throws Exception {
+
+        ObjectNode body = objectMapper.valueToTree(productDTO);
+        body.put("version", 3);
+        String jsonBody = objectMapper.writeValueAsString(body);
+
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isConflict());
+    }
+
+    @Test
+    public void updateShouldNotRewriteCategoryLinksWhenCategoriesAreUnchanged() throws Exception {
+        product.getCategories().add(new Category(3L, null));
+        String jsonBody = objectMapper.writeValueAsString(new ProductDTO(product));
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(put("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .content(jsonBody).contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.categories.length()").value(2));
+        for (String sql : statements) {
+            String lower = sql.toLowerCase();
+            Assertions.assertFalse(lower.startsWith("delete") || lower.startsWith("insert"), sql);
+        }
+    }
+
+    @Test
+    public void patchShouldChangePriceAndKeepCategoriesWhenAdminLogged() throws Exception {
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .content("{\"price\": 1999.0}").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.name").value("Smart TV"));
+        result.andExpect(jsonPath("$.price").value(1999.0));
+        result.andExpect(jsonPath("$.categories.length()").value(2));
+        for (String sql : statements) {
+            String lower = sql.toLowerCase();
+            Assertions.assertFalse(lower.contains("tb_product_category")
+                    && (lower.startsWith("delete") || lower.startsWith("insert")), sql);
+        }
+    }
+
+    @Test
+    public void patchShouldReturnUnprocessableEntityWhenCategoriesAreEmpty() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .content("{\"categories\": []}").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isUnprocessableEntity());
+        result.andExpect(jsonPath("$.errors[0].fieldName").value("categories"));
+    }
+
+    @Test
+    public void patchShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(patch("/products/{id}", exitingProductId).header("Authorization", "Bearer " + clientToken)
+                        .content("{\"price\": 1999.0}").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+
     @Test
     public void updateShouldReturnNotFoundWhenIdDoesNotExistAndAdminLogged() throws Exception {
 
@@ -368,6 +716,23 @@ public class ProductControllerIT {
         result.andExpect(status().isNoContent());
     }
 
+    @Test
+    public void deleteShouldNotReadProductBeforeDeletingIt() throws Exception {
+
+        SqlStatementRecorder.start();
+        ResultActions result =
+                mockMvc.perform(delete("/products/{id}", exitingProductId).header("Authorization", "Bearer " + adminToken)
+                        .accept(MediaType.APPLICATION_JSON));
+        List<String> statements = SqlStatementRecorder.stop();
+
+        result.andExpect(status().isNoContent());
+        // category links, then the product row
+        Assertions.assertEquals(2, statements.size(), statements.toString());
+        for (String sql : statements) {
+            Assertions.assertTrue(sql.trim().toLowerCase().startsWith("delete"), sql);
+        }
+    }
+
     @Test
     public void deleteShouldNotFoundWhenIdExistsAndAdminLogged() throws Exception {
 
@@ -408,4 +773,30 @@ public class ProductControllerIT {
 
         result.andExpect(status().isUnauthorized());
     }
+
+    @Test
+    public void bulkDeleteShouldReportDeletedBlockedAndMissingIds() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(post("/products/bulk-delete").header("Authorization", "Bearer " + adminToken)
+                        .content("[2, 3, 1000, 2, 4]").contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.deleted.length()").value(2));
+        result.andExpect(jsonPath("$.deleted[0]").value(2L));
+        result.andExpect(jsonPath("$.deleted[1]").value(4L));
+        result.andExpect(jsonPath("$.blocked[0]").value(3L));
+        result.andExpect(jsonPath("$.notFound[0]").value(1000L));
+    }
+
+    @Test
+    public void bulkDeleteShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        ResultActions result =
+                mockMvc.perform(post("/products/bulk-delete").header("Authorization", "Bearer " + clientToken)
+                        .content("[2]").contentType(MediaType.APPLICATION_JSON).accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
 }
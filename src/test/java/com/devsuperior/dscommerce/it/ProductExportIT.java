@@ -0,0 +1,130 @@
+package com.devsuperior.dscommerce.it;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ProductExportIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    private String clientToken, adminToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+    }
+
+    @Test
+    public void exportShouldStreamEveryProductAsCsv() throws Exception {
+
+        MvcResult pending = mockMvc.perform(get("/products/export?format=csv")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk());
+
+        String[] lines = pending.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(26, lines.length);
+        Assertions.assertEquals("id,name,description,price,imgUrl,categories", lines[0]);
+        Assertions.assertTrue(lines[2].startsWith("2,Smart TV,"), lines[2]);
+        Assertions.assertTrue(lines[2].endsWith(",2;3"), lines[2]);
+    }
+
+    @Test
+    public void exportShouldStreamNdjsonWithCategories() throws Exception {
+
+        MvcResult pending = mockMvc.perform(get("/products/export")
+                        .header("Authorization", "Bearer " + adminToken))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk());
+
+        String[] lines = pending.getResponse().getContentAsString().split("\n");
+        Assertions.assertEquals(25, lines.length);
+        ProductDTO first = objectMapper.readValue(lines[0], ProductDTO.class);
+        Assertions.assertEquals("The Lord of the Rings", first.getName());
+        Assertions.assertEquals("Livros", first.getCategories().get(0).getName());
+    }
+
+    // Not transactional: the export streams on another thread and must see the
+    // edited description, and the imported copies are removed afterwards.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void exportedCsvShouldBeImportedAgainWithMultilineDescriptions() throws Exception {
+
+        String description = "Primeira linha, com vírgula\nSegunda linha com \"aspas\"";
+        String original = jdbcTemplate.queryForObject("SELECT description FROM tb_product WHERE id = 1", String.class);
+        Long lastId = jdbcTemplate.queryForObject("SELECT MAX(id) FROM tb_product", Long.class);
+        jdbcTemplate.update("UPDATE tb_product SET description = ? WHERE id = 1", description);
+        try {
+            MvcResult pending = mockMvc.perform(get("/products/export?format=csv")
+                            .header("Authorization", "Bearer " + adminToken))
+                    .andExpect(request().asyncStarted())
+                    .andReturn();
+            mockMvc.perform(asyncDispatch(pending)).andExpect(status().isOk());
+            String csv = pending.getResponse().getContentAsString();
+
+            mockMvc.perform(post("/products/import")
+                            .header("Authorization", "Bearer " + adminToken)
+                            .content(csv).contentType("text/csv").accept(MediaType.APPLICATION_JSON))
+                    .andExpect(status().isOk())
+                    .andExpect(jsonPath("$.received").value(25))
+                    .andExpect(jsonPath("$.imported").value(25))
+                    .andExpect(jsonPath("$.failed").value(0));
+
+            Assertions.assertEquals(description, jdbcTemplate.queryForObject(
+                    "SELECT description FROM tb_product WHERE id > ? AND name = 'The Lord of the Rings'",
+                    String.class, lastId));
+        } finally {
+            jdbcTemplate.update("UPDATE tb_product SET description = ? WHERE id = 1", original);
+            productService.deleteAll(jdbcTemplate.queryForList(
+                    "SELECT id FROM tb_product WHERE id > ?", Long.class, lastId));
+        }
+    }
+
+    @Test
+    public void exportShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        mockMvc.perform(get("/products/export").header("Authorization", "Bearer " + clientToken))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,135 @@
+package com.devsuperior.dscommerce.it;
+
+import com.devsuperior.dscommerce.services.ProductService;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.ResultActions;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@Transactional
+public class ProductImportIT {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private ProductService productService;
+
+    private String clientToken, adminToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        adminToken = tokenUtil.obtainAccessToken(mockMvc, "alex@gmail.com", "123456");
+    }
+
+    @Test
+    public void importShouldInsertValidNdjsonRowsAndReportInvalidOnes() throws Exception {
+
+        String body = """
+                {"name":"Console PlayStation 5","description":"Lorem ipsum dolor sit amet","price":3999.9,"categories":[{"id":2}]}
+                {"name":"ab","description":"Lorem ipsum dolor sit amet","price":10.0,"categories":[{"id":2}]}
+
+                {"name":"Headset Gamer","description":"Lorem ipsum dolor sit amet","price":299.0,"categories":[{"id":2},{"id":3}]}
+                {"name":"Headset Gamer","description":"Lorem ipsum dolor sit amet","price":299.0,"categories":[{"id":99}]}
+                """;
+
+        ResultActions result = mockMvc.perform(post("/products/import")
+                .header("Authorization", "Bearer " + adminToken)
+                .content(body).contentType("application/x-ndjson").accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.received").value(4));
+        result.andExpect(jsonPath("$.imported").value(2));
+        result.andExpect(jsonPath("$.failed").value(2));
+        result.andExpect(jsonPath("$.errors[0].line").value(2));
+        result.andExpect(jsonPath("$.errors[1].line").value(5));
+        result.andExpect(jsonPath("$.errors[1].message").value("Categoria inexistente: 99"));
+    }
+
+    // Not transactional: the rows of the failed batch must really be rolled
+    // back before they are written again one by one.
+    @Test
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
+    public void importShouldKeepValidRowsOfBatchRejectedByDatabase() throws Exception {
+
+        String longUrl = "https://img.example.com/" + "x".repeat(300);
+        String body = """
+                {"name":"Importado Teclado","description":"Lorem ipsum dolor sit amet","price":199.0,"categories":[{"id":2}]}
+                {"name":"Importado Mouse","description":"Lorem ipsum dolor sit amet","price":99.0,"imgUrl":"%s","categories":[{"id":2}]}
+                {"name":"Importado Webcam","description":"Lorem ipsum dolor sit amet","price":299.0,"categories":[{"id":2}]}
+                """.formatted(longUrl);
+
+        try {
+            ResultActions result = mockMvc.perform(post("/products/import")
+                    .header("Authorization", "Bearer " + adminToken)
+                    .content(body).contentType("application/x-ndjson").accept(MediaType.APPLICATION_JSON));
+
+            result.andExpect(status().isOk());
+            result.andExpect(jsonPath("$.imported").value(2));
+            result.andExpect(jsonPath("$.failed").value(1));
+            result.andExpect(jsonPath("$.errors[0].line").value(2));
+            result.andExpect(jsonPath("$.errors[0].message").value(containsString("IMG_URL")));
+            Assertions.assertEquals(List.of("Importado Teclado", "Importado Webcam"), jdbcTemplate.queryForList(
+                    "SELECT name FROM tb_product WHERE name LIKE 'Importado %' ORDER BY id", String.class));
+        } finally {
+            productService.deleteAll(jdbcTemplate.queryForList(
+                    "SELECT id FROM tb_product WHERE name LIKE 'Importado %'", Long.class));
+        }
+    }
+
+    @Test
+    public void importShouldInsertCsvRows() throws Exception {
+
+        String body = """
+                name,description,price,imgUrl,categories
+                "Livro ""Java"" Moderno","Lorem ipsum, dolor sit amet",89.9,,1
+                Monitor 4K,Lorem ipsum dolor sit amet,1999.0,,2;3
+                Monitor 4K,Lorem ipsum dolor sit amet,abc,,2
+                """;
+
+        ResultActions result = mockMvc.perform(post("/products/import")
+                .header("Authorization", "Bearer " + adminToken)
+                .content(body).contentType("text/csv").accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isOk());
+        result.andExpect(jsonPath("$.imported").value(2));
+        result.andExpect(jsonPath("$.errors[0].line").value(4));
+        result.andExpect(jsonPath("$.errors[0].message").value("Linha CSV inválida"));
+    }
+
+    @Test
+    public void importShouldReturnForbiddenWhenClientLogged() throws Exception {
+
+        ResultActions result = mockMvc.perform(post("/products/import")
+                .header("Authorization", "Bearer " + clientToken)
+                .content("{}").contentType("application/x-ndjson").accept(MediaType.APPLICATION_JSON));
+
+        result.andExpect(status().isForbidden());
+    }
+}
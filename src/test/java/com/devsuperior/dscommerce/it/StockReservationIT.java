@@ -0,0 +1,113 @@
+package com.devsuperior.dscommerce.it;
+
+import com.devsuperior.dscommerce.services.StockReservationService;
+import com.devsuperior.dscommerce.tests.TokenUtil;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+
+// Not @Transactional: every buyer has to commit for the race to be real.
+@SpringBootTest
+@AutoConfigureMockMvc
+public class StockReservationIT {
+
+    private static final int BUYERS = 32;
+    private static final int STOCK = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @Autowired
+    private TokenUtil tokenUtil;
+
+    @Autowired
+    private StockReservationService stockService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Long productId;
+    private Integer originalStock;
+    private Long lastOrderId;
+    private String clientToken;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productId = 20L;
+        originalStock = stockService.findStock(productId).getStock();
+        lastOrderId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM tb_order", Long.class);
+        clientToken = tokenUtil.obtainAccessToken(mockMvc, "maria@gmail.com", "123456");
+        stockService.setStock(productId, STOCK);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        jdbcTemplate.update("DELETE FROM tb_order_item WHERE order_id > ?", lastOrderId);
+        jdbcTemplate.update("DELETE FROM tb_order WHERE id > ?", lastOrderId);
+        stockService.setStock(productId, originalStock);
+    }
+
+    @Test
+    public void concurrentBuyersShouldNeverOversell() throws Exception {
+        String jsonBody = "{\"items\": [{\"productId\": " + productId + ", \"quantity\": 1}]}";
+        CountDownLatch ready = new CountDownLatch(BUYERS);
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(BUYERS);
+
+        List<Future<Integer>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < BUYERS; i++) {
+                Callable<Integer> buyer = () -> {
+                    ready.countDown();
+                    start.await();
+                    return mockMvc.perform(post("/orders").header("Authorization", "Bearer " + clientToken)
+                                    .content(jsonBody).contentType(MediaType.APPLICATION_JSON)
+                                    .accept(MediaType.APPLICATION_JSON))
+                            .andReturn().getResponse().getStatus();
+                };
+                results.add(executor.submit(buyer));
+            }
+            Assertions.assertTrue(ready.await(10, TimeUnit.SECONDS));
+            start.countDown();
+
+            int created = 0;
+            int conflicted = 0;
+            for (Future<Integer> result : results) {
+                int status = result.get(30, TimeUnit.SECONDS);
+                if (status == 201) {
+                    created++;
+                } else if (status == 409) {
+                    conflicted++;
+                }
+            }
+
+            Assertions.assertEquals(STOCK, created);
+            Assertions.assertEquals(BUYERS - STOCK, conflicted);
+            Assertions.assertEquals(0, stockService.findStock(productId).getStock());
+            Long sold = jdbcTemplate.queryForObject(
+                    "SELECT COALESCE(SUM(quantity), 0) FROM tb_order_item WHERE product_id = ? AND order_id > ?",
+                    Long.class, productId, lastOrderId);
+            Assertions.assertEquals(STOCK, sold);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,149 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.entities.IdempotencyRecord;
+import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.repositories.IdempotencyRecordRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
+import com.devsuperior.dscommerce.tests.OrderFactory;
+import com.devsuperior.dscommerce.tests.UserFactory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(SpringExtension.class)
+public class IdempotentOrderServiceTests {
+
+    @InjectMocks
+    private IdempotentOrderService service = new IdempotentOrderService(100, 60000L, 60000L);
+    @Mock
+    private OrderService orderService;
+    @Mock
+    private UserService userService;
+    @Mock
+    private IdempotencyRecordRepository recordRepository;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private User client;
+    private OrderDTO orderDTO;
+    private OrderDTO created;
+
+    @BeforeEach
+    void setUp() {
+        client = UserFactory.createCustomClientUser(2L, "Maria");
+        orderDTO = new OrderDTO(OrderFactory.createOrder(client));
+        created = new OrderDTO(OrderFactory.createOrder(client));
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
+        Mockito.when(recordRepository.findById(any())).thenReturn(Optional.empty());
+        Mockito.when(orderService.insert(any())).thenReturn(created);
+    }
+
+    @Test
+    public void insertShouldReturnOriginalOrderWhenKeyIsRetried() {
+
+        OrderDTO first = service.insert(orderDTO, "key-1");
+        OrderDTO retry = service.insert(orderDTO, "key-1");
+
+        Assertions.assertSame(first, retry);
+        Mockito.verify(orderService, Mockito.times(1)).insert(any());
+        Mockito.verify(recordRepository, Mockito.times(1)).saveAndFlush(any());
+    }
+
+    @Test
+    public void insertShouldThrowConflictExceptionWhenKeyIsReusedWithAnotherBody() {
+        service.insert(orderDTO, "key-2");
+
+        OrderDTO other = new OrderDTO(OrderFactory.createOrder(client));
+        other.getItems().add(new OrderItemDTO(3L, null, null, 5, null));
+
+        Assertions.assertThrows(ConflictException.class, () -> {
+            service.insert(other, "key-2");
+        });
+        Mockito.verify(orderService, Mockito.times(1)).insert(any());
+    }
+
+    @Test
+    public void insertShouldReturnStoredOrderWhenKeyIsOnlyInDatabase() {
+        OrderDTO first = service.insert(orderDTO, "key-3");
+        service = new IdempotentOrderService(100, 60000L, 60000L);
+        ReflectionTestUtils.setField(service, "orderService", orderService);
+        ReflectionTestUtils.setField(service, "userService", userService);
+        ReflectionTestUtils.setField(service, "recordRepository", recordRepository);
+        ReflectionTestUtils.setField(service, "transactionManager", transactionManager);
+
+        ArgumentCaptor<IdempotencyRecord> saved = ArgumentCaptor.forClass(IdempotencyRecord.class);
+        Mockito.verify(recordRepository).saveAndFlush(saved.capture());
+        Mockito.when(recordRepository.findById(saved.getValue().getId())).thenReturn(Optional.of(saved.getValue()));
+        Mockito.when(orderService.findById(first.getId())).thenReturn(first);
+
+        OrderDTO result = service.insert(orderDTO, "key-3");
+
+        Assertions.assertSame(first, result);
+        Mockito.verify(orderService, Mockito.times(1)).insert(any());
+    }
+
+    @Test
+    public void purgeExpiredShouldDeleteKeysOlderThanTtl() {
+        Instant now = Instant.parse("2026-01-01T12:00:00Z");
+        Mockito.when(recordRepository.deleteCreatedBefore(any())).thenReturn(3);
+
+        int result = service.purgeExpired(now);
+
+        Assertions.assertEquals(3, result);
+        Mockito.verify(recordRepository).deleteCreatedBefore(now.minusMillis(60000L));
+        Assertions.assertEquals(3L, service.getMetrics().get("purged"));
+    }
+
+    @Test
+    public void insertShouldCollapseConcurrentDuplicatesIntoOneInsert() throws Exception {
+        int callers = 8;
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(orderService.insert(any())).thenAnswer(invocation -> {
+            release.await(10, TimeUnit.SECONDS);
+            return created;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<OrderDTO>> results = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                results.add(executor.submit(() -> service.insert(orderDTO, "key-4")));
+            }
+            long deadline = System.currentTimeMillis() + 10000;
+            while ((long) service.getMetrics().get("coalesced") < callers - 1 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<OrderDTO> result : results) {
+                Assertions.assertSame(created, result.get(10, TimeUnit.SECONDS));
+            }
+            Mockito.verify(orderService, Mockito.times(1)).insert(any());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
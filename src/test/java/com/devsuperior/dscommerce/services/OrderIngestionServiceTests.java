@@ -0,0 +1,334 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
+import com.devsuperior.dscommerce.entities.Order;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.entities.User;
+import com.devsuperior.dscommerce.repositories.OrderRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
+import com.devsuperior.dscommerce.tests.ProductFactory;
+import com.devsuperior.dscommerce.tests.UserFactory;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(SpringExtension.class)
+public class OrderIngestionServiceTests {
+
+    private static final int BATCH_SIZE = 4;
+
+    @InjectMocks
+    private OrderIngestionService service = new OrderIngestionService(true, BATCH_SIZE, 200L, 8, 10L, 5000L);
+    @Mock
+    private OrderRepository repository;
+    @Mock
+    private ProductRepository productRepository;
+    @Mock
+    private UserService userService;
+    @Mock
+    private StockReservationService stockService;
+    @Mock
+    private OrderOutbox outbox;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private User client;
+    private Product product;
+    private Long nonExistingProductId;
+    private AtomicLong sequence;
+    private List<Integer> savedBatchSizes;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        client = UserFactory.createCustomClientUser(1L, "Maria");
+        product = ProductFactory.createProduct();
+        nonExistingProductId = 1000L;
+        sequence = new AtomicLong();
+        savedBatchSizes = new CopyOnWriteArrayList<>();
+        executor = Executors.newFixedThreadPool(BATCH_SIZE);
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
+        Mockito.when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+            Collection<Long> ids = invocation.getArgument(0);
+            return ids.contains(product.getId()) ? List.of(product) : List.of();
+        });
+        Mockito.when(repository.saveAll(any())).thenAnswer(invocation -> {
+            Collection<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            savedBatchSizes.add(orders.size());
+            return new ArrayList<>(orders);
+        });
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        service.stop();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void insertShouldCommitConcurrentOrdersInOneTransaction() throws Exception {
+        service.start();
+
+        List<Future<OrderDTO>> results = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            results.add(executor.submit(() -> service.insert(orderFor(product.getId()))));
+        }
+
+        for (Future<OrderDTO> result : results) {
+            Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+        }
+        Assertions.assertEquals(List.of(BATCH_SIZE), savedBatchSizes);
+        Mockito.verify(productRepository, Mockito.times(1)).findAllById(any());
+        Assertions.assertEquals(1L, service.getMetrics().get("batches"));
+    }
+
+    @Test
+    public void insertShouldFailOnlyOrderWithMissingProduct() throws Exception {
+        service.start();
+
+        Future<OrderDTO> good = executor.submit(() -> service.insert(orderFor(product.getId())));
+        Future<OrderDTO> bad = executor.submit(() -> service.insert(orderFor(nonExistingProductId)));
+
+        Assertions.assertNotNull(good.get(5, TimeUnit.SECONDS).getId());
+        ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> bad.get(5, TimeUnit.SECONDS));
+        Assertions.assertInstanceOf(ResourceNotFoundException.class, e.getCause());
+    }
+
+    @Test
+    public void insertShouldMergeLinesForSameProductIntoOneItem() throws Exception {
+        service.start();
+        OrderDTO dto = orderFor(product.getId());
+        dto.getItems().add(new OrderItemDTO(product.getId(), null, null, 2, null));
+
+        OrderDTO result = service.insert(dto);
+
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals(3, result.getItems().get(0).getQuantity());
+        Mockito.verify(stockService).reserve(Map.of(product.getId(), 3));
+    }
+
+    @Test
+    public void insertShouldRetryOrdersOneByOneWhenBatchFails() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            Collection<Order> orders = invocation.getArgument(0);
+            if (orders.size() > 1) {
+                throw new DataIntegrityViolationException("batch");
+            }
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            return new ArrayList<>(orders);
+        }).when(repository).saveAll(any());
+        service.start();
+
+        List<Future<OrderDTO>> results = new ArrayList<>();
+        for (int i = 0; i < BATCH_SIZE; i++) {
+            results.add(executor.submit(() -> service.insert(orderFor(product.getId()))));
+        }
+
+        for (Future<OrderDTO> result : results) {
+            Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+        }
+        Assertions.assertEquals(1L, service.getMetrics().get("fallbacks"));
+    }
+
+    @Test
+    public void insertShouldFailBatchAndKeepWriterRunningWhenErrorIsThrown() throws Exception {
+        Mockito.doThrow(new LinkageError("boom")).when(repository).saveAll(any());
+        service.start();
+
+        IllegalStateException e = Assertions.assertThrows(IllegalStateException.class, () -> {
+            service.insert(orderFor(product.getId()));
+        });
+        Assertions.assertInstanceOf(LinkageError.class, e.getCause());
+
+        Mockito.doAnswer(invocation -> {
+            Collection<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            return new ArrayList<>(orders);
+        }).when(repository).saveAll(any());
+        Assertions.assertNotNull(service.insert(orderFor(product.getId())).getId());
+    }
+
+    @Test
+    public void insertShouldThrowServiceUnavailableExceptionWhenQueueIsFull() throws Exception {
+        OrderIngestionService small = newService(1, 1, 5000L);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            Collection<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            return new ArrayList<>(orders);
+        }).when(repository).saveAll(any());
+        small.start();
+        try {
+            Future<OrderDTO> writing = executor.submit(() -> small.insert(orderFor(product.getId())));
+            waitFor(() -> (long) small.getMetrics().get("batches") == 1L);
+            Future<OrderDTO> queued = executor.submit(() -> small.insert(orderFor(product.getId())));
+            waitFor(() -> (int) small.getMetrics().get("queueDepth") == 1);
+
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+                small.insert(orderFor(product.getId()));
+            });
+            Assertions.assertEquals(1L, small.getMetrics().get("rejected"));
+
+            release.countDown();
+            Assertions.assertNotNull(writing.get(5, TimeUnit.SECONDS).getId());
+            Assertions.assertNotNull(queued.get(5, TimeUnit.SECONDS).getId());
+        } finally {
+            release.countDown();
+            small.stop();
+        }
+    }
+
+    @Test
+    public void insertShouldThrowServiceUnavailableExceptionWhenOrderIsNotStoredInTime() throws Exception {
+        OrderIngestionService slow = newService(1, 1, 50L);
+        // accepts orders without a writer, so the order stays queued
+        ReflectionTestUtils.setField(slow, "running", true);
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+            slow.insert(orderFor(product.getId()));
+        });
+        Assertions.assertEquals(1L, slow.getMetrics().get("timeouts"));
+
+        ReflectionTestUtils.setField(slow, "running", false);
+        slow.start();
+        try {
+            // the writer takes the abandoned order and skips it
+            Mockito.verify(transactionManager, Mockito.timeout(5000)).commit(any());
+            Mockito.verify(repository, Mockito.never()).saveAll(any());
+            Assertions.assertEquals(0L, slow.getMetrics().get("committed"));
+        } finally {
+            slow.stop();
+        }
+    }
+
+    @Test
+    public void insertShouldWaitForCommitWhenTimeoutHitsClaimedOrder() throws Exception {
+        OrderIngestionService slow = newService(1, 1, 50L);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            Collection<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            return new ArrayList<>(orders);
+        }).when(repository).saveAll(any());
+        slow.start();
+        try {
+            Future<OrderDTO> result = executor.submit(() -> slow.insert(orderFor(product.getId())));
+            waitFor(() -> (long) slow.getMetrics().get("batches") == 1L);
+            // well past the await timeout while the order is mid-commit
+            Thread.sleep(200);
+            Assertions.assertFalse(result.isDone());
+
+            release.countDown();
+            Assertions.assertNotNull(result.get(5, TimeUnit.SECONDS).getId());
+            Assertions.assertEquals(0L, slow.getMetrics().get("timeouts"));
+            Assertions.assertEquals(1L, slow.getMetrics().get("committed"));
+        } finally {
+            release.countDown();
+            slow.stop();
+        }
+    }
+
+    @Test
+    public void stopShouldFailQueuedOrdersAndRejectNewOnes() throws Exception {
+        OrderIngestionService stopping = newService(1, 2, 5000L);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            Collection<Order> orders = invocation.getArgument(0);
+            for (Order order : orders) {
+                order.setId(sequence.incrementAndGet());
+            }
+            return new ArrayList<>(orders);
+        }).when(repository).saveAll(any());
+        stopping.start();
+        try {
+            Future<OrderDTO> writing = executor.submit(() -> stopping.insert(orderFor(product.getId())));
+            waitFor(() -> (long) stopping.getMetrics().get("batches") == 1L);
+            Future<OrderDTO> queued = executor.submit(() -> stopping.insert(orderFor(product.getId())));
+            waitFor(() -> (int) stopping.getMetrics().get("queueDepth") == 1);
+
+            Future<?> stopped = executor.submit(() -> {
+                stopping.stop();
+                return null;
+            });
+            waitFor(() -> !(boolean) ReflectionTestUtils.getField(stopping, "running"));
+            Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+                stopping.insert(orderFor(product.getId()));
+            });
+
+            release.countDown();
+            stopped.get(5, TimeUnit.SECONDS);
+            Assertions.assertNotNull(writing.get(5, TimeUnit.SECONDS).getId());
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> queued.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(ServiceUnavailableException.class, e.getCause());
+        } finally {
+            release.countDown();
+            stopping.stop();
+        }
+    }
+
+    private OrderIngestionService newService(int batchSize, int queueCapacity, long awaitTimeoutMillis) {
+        OrderIngestionService result = new OrderIngestionService(true, batchSize, 0L, queueCapacity, 10L, awaitTimeoutMillis);
+        ReflectionTestUtils.setField(result, "repository", repository);
+        ReflectionTestUtils.setField(result, "productRepository", productRepository);
+        ReflectionTestUtils.setField(result, "userService", userService);
+        ReflectionTestUtils.setField(result, "stockService", stockService);
+        ReflectionTestUtils.setField(result, "outbox", outbox);
+        ReflectionTestUtils.setField(result, "eventPublisher", eventPublisher);
+        ReflectionTestUtils.setField(result, "transactionManager", transactionManager);
+        return result;
+    }
+
+    private void waitFor(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private OrderDTO orderFor(Long productId) {
+        OrderDTO dto = new OrderDTO(null, null, null, null, null);
+        dto.getItems().add(new OrderItemDTO(productId, null, null, 1, null));
+        return dto;
+    }
+}
@@ -1,30 +1,37 @@
 package com.devsuperior.dscommerce.services;
 
 import com.devsuperior.dscommerce.dto.OrderDTO;
+import com.devsuperior.dscommerce.dto.OrderItemDTO;
 import com.devsuperior.dscommerce.entities.Order;
-import com.devsuperior.dscommerce.entities.OrderItem;
+import com.devsuperior.dscommerce.entities.OrderStatus;
 import com.devsuperior.dscommerce.entities.Product;
 import com.devsuperior.dscommerce.entities.User;
-import com.devsuperior.dscommerce.repositories.OrderItemRepository;
+import com.devsuperior.dscommerce.events.OrderCreatedEvent;
 import com.devsuperior.dscommerce.repositories.OrderRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.ForbiddenException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
 import com.devsuperior.dscommerce.tests.OrderFactory;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import com.devsuperior.dscommerce.tests.UserFactory;
-import jakarta.persistence.EntityNotFoundException;
+import jakarta.persistence.EntityManager;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
 
 import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -41,9 +48,15 @@ public class OrderServiceTests {
     @Mock
     private ProductRepository productRepository;
     @Mock
-    private OrderItemRepository orderItemRepository;
-    @Mock
     private UserService userService;
+    @Mock
+    private StockReservationService stockService;
+    @Mock
+    private OrderOutbox outbox;
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+    @Mock
+    private EntityManager entityManager;
 
     private Long existingOrderId, nonExistingOrderId;
     private Long existingProductId, nonExistingProductId;
@@ -68,15 +81,22 @@ public class OrderServiceTests {
         orderDTO = new OrderDTO(order);
         product = ProductFactory.createProduct();
 
-        Mockito.when(repository.findById(existingOrderId)).thenReturn(Optional.of(order));
-        Mockito.when(repository.findById(nonExistingOrderId)).thenReturn(Optional.empty());
-
-        Mockito.when(productRepository.getReferenceById(existingProductId)).thenReturn(product);
-        Mockito.when(productRepository.getReferenceById(nonExistingProductId)).thenThrow(EntityNotFoundException.class);
+        Mockito.when(repository.findWithDetailsById(existingOrderId)).thenReturn(Optional.of(order));
+        Mockito.when(repository.findWithDetailsById(nonExistingOrderId)).thenReturn(Optional.empty());
+
+        Mockito.when(productRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Product> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (!id.equals(nonExistingProductId)) {
+                    Product p = ProductFactory.createProduct();
+                    p.setId(id);
+                    found.add(p);
+                }
+            }
+            return found;
+        });
 
         Mockito.when(repository.save(any())).thenReturn(order);
-
-        Mockito.when(orderItemRepository.saveAll(any())).thenReturn(new ArrayList<>(order.getItems()));
     }
 
     @Test
@@ -140,6 +160,17 @@ public class OrderServiceTests {
         Assertions.assertNotNull(result);
     }
 
+    @Test
+    public void insertShouldPublishOrderCreatedEvent() {
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
+
+        service.insert(orderDTO);
+
+        Mockito.verify(eventPublisher).publishEvent(any(OrderCreatedEvent.class));
+        Mockito.verify(outbox).created(any(Order.class));
+    }
+
     @Test
     public void insertShouldThrowsUserNameNotFoundExceptionWhenUserNotLogged() {
 
@@ -154,18 +185,102 @@ public class OrderServiceTests {
     }
 
     @Test
-    public void insertShouldThrowsEntityNotFoundExceptionWhenOrderProductIdDoesNotExist() {
+    public void insertShouldThrowsResourceNotFoundExceptionWhenOrderProductIdDoesNotExist() {
 
         Mockito.when(userService.authenticated()).thenReturn(client);
 
-        product.setId(nonExistingProductId);
-        OrderItem orderItem = new OrderItem(order, product, 2, 10.0);
-        order.getItems().add(orderItem);
+        orderDTO.getItems().add(new OrderItemDTO(nonExistingProductId, null, null, 1, null));
 
-        orderDTO = new OrderDTO(order);
+        ResourceNotFoundException e = Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            OrderDTO result = service.insert(orderDTO);
+        });
+        Assertions.assertEquals("Produtos não encontrados: [" + nonExistingProductId + "]", e.getMessage());
+        Mockito.verify(repository, Mockito.never()).save(any());
+    }
+
+    @Test
+    public void insertShouldLoadAllItemProductsWithOneLookup() {
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
 
-        Assertions.assertThrows(EntityNotFoundException.class, () -> {
+        orderDTO.getItems().clear();
+        for (long id = 100; id < 150; id++) {
+            orderDTO.getItems().add(new OrderItemDTO(id, null, null, 1, null));
+        }
+
+        OrderDTO result = service.insert(orderDTO);
+
+        Assertions.assertNotNull(result);
+        Mockito.verify(productRepository, Mockito.times(1)).findAllById(any());
+        Mockito.verify(productRepository, Mockito.never()).getReferenceById(any());
+    }
+
+    @Test
+    public void insertShouldMergeLinesForSameProductSoReservedAndReleasedStockMatchStoredQuantity() {
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
+        Mockito.when(repository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+
+        orderDTO.getItems().clear();
+        orderDTO.getItems().add(new OrderItemDTO(existingProductId, null, null, 2, null));
+        orderDTO.getItems().add(new OrderItemDTO(existingProductId, null, null, 3, null));
+
+        OrderDTO result = service.insert(orderDTO);
+
+        Assertions.assertEquals(1, result.getItems().size());
+        Assertions.assertEquals(5, result.getItems().get(0).getQuantity());
+        Mockito.verify(stockService).reserve(Map.of(existingProductId, 5));
+
+        ArgumentCaptor<Order> saved = ArgumentCaptor.forClass(Order.class);
+        Mockito.verify(repository).save(saved.capture());
+        Mockito.when(repository.findWithDetailsById(existingOrderId)).thenReturn(Optional.of(saved.getValue()));
+        Mockito.when(repository.updateStatus(existingOrderId, OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED))
+                .thenReturn(1);
+
+        service.cancel(existingOrderId);
+
+        Mockito.verify(stockService).release(Map.of(existingProductId, 5));
+    }
+
+    @Test
+    public void insertShouldThrowsConflictExceptionWhenStockIsInsufficient() {
+
+        Mockito.when(userService.authenticated()).thenReturn(client);
+        Mockito.when(stockService.reserve(any())).thenReturn(List.of(existingProductId));
+
+        Assertions.assertThrows(ConflictException.class, () -> {
             OrderDTO result = service.insert(orderDTO);
         });
+        Mockito.verify(repository, Mockito.never()).save(any());
+    }
+
+    @Test
+    public void cancelShouldReleaseStockWhenOrderIsWaitingPayment() {
+
+        Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+        Mockito.when(repository.updateStatus(existingOrderId, OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED))
+                .thenReturn(1);
+
+        OrderDTO result = service.cancel(existingOrderId);
+
+        Assertions.assertEquals(OrderStatus.CANCELED, result.getStatus());
+        Mockito.verify(entityManager).detach(order);
+        Mockito.verify(stockService).release(Map.of(product.getId(), 2));
+        Mockito.verify(outbox).statusChanged(List.of(existingOrderId), OrderStatus.WAITING_PAYMENT,
+                OrderStatus.CANCELED);
+    }
+
+    @Test
+    public void cancelShouldThrowsConflictExceptionWhenOrderIsNotWaitingPayment() {
+
+        Mockito.doNothing().when(authService).validateSelfOrAdmin(any());
+        Mockito.when(repository.updateStatus(existingOrderId, OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED))
+                .thenReturn(0);
+
+        Assertions.assertThrows(ConflictException.class, () -> {
+            OrderDTO result = service.cancel(existingOrderId);
+        });
+        Mockito.verify(stockService, Mockito.never()).release(any());
+        Mockito.verify(outbox, Mockito.never()).statusChanged(any(), any(), any());
     }
 }
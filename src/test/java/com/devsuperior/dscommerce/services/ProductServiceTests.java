@@ -1,11 +1,26 @@
 package com.devsuperior.dscommerce.services;
 
+import com.devsuperior.dscommerce.dto.CategoryDTO;
 import com.devsuperior.dscommerce.dto.ProductDTO;
 import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.dto.ProductPatchDTO;
+import com.devsuperior.dscommerce.dto.SliceDTO;
+import com.devsuperior.dscommerce.entities.Category;
 import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
 import com.devsuperior.dscommerce.repositories.ProductRepository;
+import com.devsuperior.dscommerce.services.cache.CatalogReadCoalescer;
+import com.devsuperior.dscommerce.services.cache.ProductCache;
+import com.devsuperior.dscommerce.services.cache.ProductCountCache;
+import com.devsuperior.dscommerce.services.exceptions.BadRequestException;
+import com.devsuperior.dscommerce.services.exceptions.ConflictException;
 import com.devsuperior.dscommerce.services.exceptions.DatabaseException;
 import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import com.devsuperior.dscommerce.services.exceptions.ServiceUnavailableException;
+import com.devsuperior.dscommerce.services.exceptions.UnprocessableEntityException;
+import com.devsuperior.dscommerce.services.search.ProductFacetIndex;
+import com.devsuperior.dscommerce.services.search.ProductSearchIndex;
+import com.devsuperior.dscommerce.services.search.ProductSuggestIndex;
 import com.devsuperior.dscommerce.tests.ProductFactory;
 import jakarta.persistence.EntityNotFoundException;
 import org.junit.jupiter.api.Assertions;
@@ -15,15 +30,27 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
+import org.mockito.Spy;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageImpl;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.data.domain.Sort;
 import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.mockito.ArgumentMatchers.any;
 
@@ -33,41 +60,67 @@ public class ProductServiceTests {
     private ProductService service;
     @Mock
     private ProductRepository repository;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private ProductSearchIndex searchIndex;
+    @Mock
+    private ProductSuggestIndex suggestIndex;
+    @Mock
+    private ProductFacetIndex facetIndex;
+    @Spy
+    private ProductCache productCache = new ProductCache(100, 60000L);
+    @Spy
+    private ProductCountCache countCache = new ProductCountCache(30000L, 100);
+    @Spy
+    private CatalogReadCoalescer coalescer = new CatalogReadCoalescer();
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
 
-    private Long existingProductId, nonExistingProductId, dependentProductId;
+    private Long existingProductId, nonExistingProductId, dependentProductId, nonExistingCategoryId;
     private String productName;
     private Product product;
     private ProductDTO productDTO;
-    private PageImpl<Product> page;
+    private PageImpl<ProductMinDTO> page;
 
     @BeforeEach
     void setUp() throws Exception {
         existingProductId = 1L;
         nonExistingProductId = 2L;
         dependentProductId = 3L;
+        nonExistingCategoryId = 99L;
 
         productName = "PlayStation 5";
 
         product = ProductFactory.createProduct(productName);
         productDTO = new ProductDTO(product);
-        page = new PageImpl<>(List.of(product));
+        page = new PageImpl<>(List.of(new ProductMinDTO(product)));
 
-        Mockito.when(repository.findById(existingProductId)).thenReturn(Optional.of(product));
-        Mockito.when(repository.findById(nonExistingProductId)).thenReturn(Optional.empty());
+        Mockito.when(repository.findWithCategoriesById(existingProductId)).thenReturn(Optional.of(product));
+        Mockito.when(repository.findWithCategoriesById(nonExistingProductId)).thenReturn(Optional.empty());
 
         Mockito.when(repository.searchByName(any(), (Pageable) any())).thenReturn(page);
+        Mockito.when(repository.searchByNameAfterId(any(), any(), any())).thenReturn(List.of(new ProductMinDTO(product)));
 
         Mockito.when(repository.save(any())).thenReturn(product);
+        Mockito.when(repository.saveAndFlush(any())).thenReturn(product);
 
         Mockito.when(repository.getReferenceById(existingProductId)).thenReturn(product);
         Mockito.when(repository.getReferenceById(nonExistingProductId)).thenThrow(EntityNotFoundException.class);
 
-        Mockito.when(repository.existsById(existingProductId)).thenReturn(true);
-        Mockito.when(repository.existsById(dependentProductId)).thenReturn(true);
-        Mockito.when(repository.existsById(nonExistingProductId)).thenReturn(false);
-
-        Mockito.doNothing().when(repository).deleteById(existingProductId);
-        Mockito.doThrow(DataIntegrityViolationException.class).when(repository).deleteById(dependentProductId);
+        Mockito.when(repository.deleteOneById(existingProductId)).thenReturn(1);
+        Mockito.when(repository.deleteOneById(nonExistingProductId)).thenReturn(0);
+        Mockito.when(repository.deleteOneById(dependentProductId)).thenThrow(DataIntegrityViolationException.class);
+
+        Mockito.when(categoryRepository.findAllById(any())).thenAnswer(invocation -> {
+            List<Category> found = new ArrayList<>();
+            for (Long id : invocation.<Iterable<Long>>getArgument(0)) {
+                if (!id.equals(nonExistingCategoryId)) {
+                    found.add(new Category(id, "Category " + id));
+                }
+            }
+            return found;
+        });
 
     }
 
@@ -81,6 +134,16 @@ public class ProductServiceTests {
         Assertions.assertEquals(result.getName(), product.getName());
     }
 
+    @Test
+    public void findByIdShouldReadThroughCache() {
+
+        service.findById(existingProductId);
+        ProductDTO result = service.findById(existingProductId);
+
+        Assertions.assertEquals(result.getId(), existingProductId);
+        Mockito.verify(repository, Mockito.times(1)).findWithCategoriesById(existingProductId);
+    }
+
     @Test
     public void findByIdShouldReturnResourceNotFoundExceptionIdDoesNotExists() {
 
@@ -89,16 +152,135 @@ public class ProductServiceTests {
         });
     }
 
+    @Test
+    public void findAllByIdsShouldLoadMissesInOneQueryAndKeepRequestOrder() {
+        Product other = new Product(5L, "Smart TV", "Lorem ipsum dolor sit amet", 2190.0, null);
+        service.findById(existingProductId);
+        Mockito.when(repository.findWithCategoriesByIdIn(any())).thenReturn(List.of(other));
+
+        List<ProductDTO> result = service.findAllByIds(List.of(5L, existingProductId, 7L, 5L));
+
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(5L, result.get(0).getId());
+        Assertions.assertEquals(existingProductId, result.get(1).getId());
+        Mockito.verify(repository, Mockito.times(1)).findWithCategoriesByIdIn(
+                Mockito.argThat(ids -> List.copyOf(ids).equals(List.of(5L, 7L))));
+    }
+
+    @Test
+    public void findAllByIdsShouldThrowBadRequestExceptionWhenTooManyIds() {
+        List<Long> ids = new ArrayList<>();
+        for (long i = 1; i <= 101; i++) {
+            ids.add(i);
+        }
+
+        Assertions.assertThrows(BadRequestException.class, () -> service.findAllByIds(ids));
+    }
+
     @Test
     public void findAllShouldReturnPagedProductMinDTO() {
         Pageable pageable = PageRequest.of(0, 12);
         Page<ProductMinDTO> result = service.findAll(productName, pageable);
 
         Assertions.assertNotNull(result);
-        Assertions.assertEquals(result.getSize(), 1);
+        Assertions.assertEquals(1, result.getNumberOfElements());
         Assertions.assertEquals(result.iterator().next().getName(), productName);
     }
 
+    @Test
+    public void findAllShouldCountOnceAndReuseCachedTotalWhenThereAreMorePages() {
+        Pageable pageable = PageRequest.of(0, 1);
+        Mockito.when(repository.searchByName(any(), (Pageable) any()))
+                .thenReturn(new SliceImpl<>(List.of(new ProductMinDTO(product)), pageable, true));
+        Mockito.when(repository.countByName(productName)).thenReturn(30L);
+
+        Page<ProductMinDTO> first = service.findAll(productName, pageable);
+        Page<ProductMinDTO> second = service.findAll(productName, PageRequest.of(1, 1));
+
+        Assertions.assertEquals(30L, first.getTotalElements());
+        Assertions.assertEquals(30L, second.getTotalElements());
+        Mockito.verify(repository, Mockito.times(1)).countByName(productName);
+    }
+
+    @Test
+    public void findAllShouldRunOneQueryForConcurrentIdenticalRequests() throws Exception {
+        int callers = 16;
+        Pageable pageable = PageRequest.of(0, 12);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(repository.searchByName(any(), (Pageable) any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return page;
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(callers);
+        try {
+            List<Future<Page<ProductMinDTO>>> futures = new ArrayList<>();
+            for (int i = 0; i < callers; i++) {
+                futures.add(executor.submit(() -> service.findAll(productName, pageable)));
+            }
+            long deadline = System.currentTimeMillis() + 5000;
+            while ((Long) coalescer.getMetrics().get("listingCoalesced") < callers - 1
+                    && System.currentTimeMillis() < deadline) {
+                Thread.sleep(5);
+            }
+            release.countDown();
+
+            for (Future<Page<ProductMinDTO>> future : futures) {
+                Assertions.assertEquals(productName, future.get(5, TimeUnit.SECONDS).getContent().get(0).getName());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        Mockito.verify(repository, Mockito.times(1)).searchByName(any(), (Pageable) any());
+    }
+
+    @Test
+    public void findAllSliceShouldNotCount() {
+        Pageable pageable = PageRequest.of(0, 1);
+        Mockito.when(repository.searchByName(any(), (Pageable) any()))
+                .thenReturn(new SliceImpl<>(List.of(new ProductMinDTO(product)), pageable, true));
+
+        SliceDTO<ProductMinDTO> result = service.findAllSlice(productName, pageable);
+
+        Assertions.assertTrue(result.isHasNext());
+        Assertions.assertEquals(1, result.getContent().size());
+        Mockito.verify(repository, Mockito.never()).countByName(any());
+    }
+
+    @Test
+    public void findAllShouldUseSearchIndexWhenIndexIsReadyAndNameIsNotEmpty() {
+        Pageable pageable = PageRequest.of(0, 12);
+        Page<ProductMinDTO> indexed = new PageImpl<>(List.of(new ProductMinDTO(product)), pageable, 1);
+        Mockito.when(searchIndex.isReady()).thenReturn(true);
+        Mockito.when(searchIndex.search(productName, pageable)).thenReturn(indexed);
+
+        Page<ProductMinDTO> result = service.findAll(productName, pageable);
+
+        Assertions.assertSame(indexed, result);
+        Mockito.verify(repository, Mockito.never()).searchByName(any(), any());
+    }
+
+    @Test
+    public void suggestShouldUseSuggestIndexWhenIndexIsReady() {
+        List<ProductMinDTO> suggestions = List.of(new ProductMinDTO(product));
+        Mockito.when(suggestIndex.isReady()).thenReturn(true);
+        Mockito.when(suggestIndex.suggest("play", 10)).thenReturn(suggestions);
+
+        List<ProductMinDTO> result = service.suggest("play", 10);
+
+        Assertions.assertSame(suggestions, result);
+    }
+
+    @Test
+    public void suggestShouldFallBackToRepositoryWhenIndexIsNotReady() {
+
+        List<ProductMinDTO> result = service.suggest("play", 10);
+
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals(productName, result.get(0).getName());
+    }
+
     @Test
     public void insertShouldReturnProductDTO() {
 
@@ -126,12 +308,88 @@ public class ProductServiceTests {
         });
     }
 
+    @Test
+    public void updateShouldThrowConflictExceptionWhenVersionIsStale() {
+        ReflectionTestUtils.setField(product, "version", 1);
+        ProductDTO stale = new ProductDTO(product);
+        ReflectionTestUtils.setField(product, "version", 2);
+
+        Assertions.assertThrows(ConflictException.class, () -> {
+            service.update(existingProductId, stale);
+        });
+        Mockito.verify(repository, Mockito.never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void updateShouldThrowConflictExceptionWhenConcurrentWriterCommitsFirst() {
+        Mockito.when(repository.saveAndFlush(any())).thenThrow(ObjectOptimisticLockingFailureException.class);
+
+        Assertions.assertThrows(ConflictException.class, () -> {
+            service.update(existingProductId, productDTO);
+        });
+        Mockito.verify(eventPublisher, Mockito.never()).publishEvent(any());
+    }
+
+    @Test
+    public void updateShouldKeepUnchangedCategoriesAndAddOnlyNewOnes() {
+        Category kept = product.getCategories().iterator().next();
+        productDTO.getCategories().add(new CategoryDTO(2L, null));
+
+        service.update(existingProductId, productDTO);
+
+        Assertions.assertEquals(2, product.getCategories().size());
+        Assertions.assertTrue(product.getCategories().stream().anyMatch(cat -> cat == kept));
+    }
+
+    @Test
+    public void updateShouldThrowUnprocessableEntityExceptionWhenCategoryDoesNotExist() {
+        productDTO.getCategories().add(new CategoryDTO(nonExistingCategoryId, null));
+
+        Assertions.assertThrows(UnprocessableEntityException.class, () -> {
+            service.update(existingProductId, productDTO);
+        });
+        Mockito.verify(repository, Mockito.never()).saveAndFlush(any());
+    }
+
+    @Test
+    public void patchShouldChangeOnlySuppliedFields() {
+        String description = product.getDescription();
+        Category kept = product.getCategories().iterator().next();
+
+        ProductDTO result = service.patch(existingProductId, new ProductPatchDTO(null, null, 10.0, null, null));
+
+        Assertions.assertEquals(10.0, result.getPrice());
+        Assertions.assertEquals(productName, result.getName());
+        Assertions.assertEquals(description, result.getDescription());
+        Assertions.assertEquals(1, product.getCategories().size());
+        Assertions.assertTrue(product.getCategories().contains(kept));
+    }
+
+    @Test
+    public void patchShouldReplaceCategoriesWhenSupplied() {
+
+        service.patch(existingProductId, new ProductPatchDTO(null, null, null, null, List.of(new CategoryDTO(3L, null))));
+
+        Assertions.assertEquals(1, product.getCategories().size());
+        Assertions.assertEquals(3L, product.getCategories().iterator().next().getId());
+    }
+
+    @Test
+    public void patchShouldReturnResourceNotFoundExceptionWhenIdDoesNotExist() {
+
+        Assertions.assertThrows(ResourceNotFoundException.class, () -> {
+            service.patch(nonExistingProductId, new ProductPatchDTO(null, null, 10.0, null, null));
+        });
+    }
+
     @Test
     public void deleteShouldDoNotWhenIdExists() {
 
         Assertions.assertDoesNotThrow(() -> {
             service.delete(existingProductId);
         });
+        Mockito.verify(repository).deleteOneById(existingProductId);
+        Mockito.verify(repository, Mockito.never()).existsById(any());
     }
 
     @Test
@@ -149,4 +407,25 @@ public class ProductServiceTests {
             service.delete(dependentProductId);
         });
     }
+
+    @Test
+    public void filterShouldThrowServiceUnavailableExceptionWhileFacetIndexIsNotReady() {
+
+        Mockito.when(facetIndex.isReady()).thenReturn(false);
+
+        Assertions.assertThrows(ServiceUnavailableException.class, () -> {
+            service.filter("", List.of(), null, null, PageRequest.of(0, 10));
+        });
+        Mockito.verify(facetIndex, Mockito.never()).rebuild(any());
+    }
+
+    @Test
+    public void filterShouldThrowBadRequestExceptionWhenSortPropertyIsNotSupported() {
+
+        Mockito.when(facetIndex.isReady()).thenReturn(true);
+
+        Assertions.assertThrows(BadRequestException.class, () -> {
+            service.filter("", List.of(), null, null, PageRequest.of(0, 10, Sort.by("description")));
+        });
+    }
 }
@@ -0,0 +1,190 @@
+package com.devsuperior.dscommerce.services;
+
+import com.devsuperior.dscommerce.projections.StockProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.*;
+
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+
+@ExtendWith(SpringExtension.class)
+public class StockReservationServiceTests {
+
+    @InjectMocks
+    private StockReservationService service;
+    @Mock
+    private ProductRepository repository;
+
+    private Long productId, otherProductId, untrackedProductId;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        productId = 1L;
+        otherProductId = 2L;
+        untrackedProductId = 3L;
+
+        mockStock(productId, 10);
+        mockStock(otherProductId, 10);
+        mockStock(untrackedProductId, null);
+        Mockito.when(repository.reserveStock(anyLong(), anyInt())).thenReturn(1);
+    }
+
+    @Test
+    public void reserveShouldApplyConditionalUpdateWhenStockIsAvailable() {
+
+        List<Long> result = service.reserve(Map.of(productId, 3));
+
+        Assertions.assertTrue(result.isEmpty());
+        Mockito.verify(repository).reserveStock(productId, 3);
+    }
+
+    @Test
+    public void reserveShouldRejectWithoutDatabaseUpdateWhenCounterIsExhausted() {
+
+        Assertions.assertTrue(service.reserve(Map.of(productId, 10)).isEmpty());
+        List<Long> result = service.reserve(Map.of(productId, 1));
+
+        Assertions.assertEquals(List.of(productId), result);
+        Mockito.verify(repository, Mockito.times(1)).reserveStock(anyLong(), anyInt());
+        Mockito.verify(repository, Mockito.times(1)).findStockById(productId);
+    }
+
+    @Test
+    public void reserveShouldReloadExhaustedCounterWhenStockWasAddedElsewhere() {
+        ReflectionTestUtils.setField(service, "refreshMillis", 0L);
+
+        Assertions.assertTrue(service.reserve(Map.of(productId, 10)).isEmpty());
+        // restocked by another instance or directly in the database
+        mockStock(productId, 5);
+
+        Assertions.assertTrue(service.reserve(Map.of(productId, 5)).isEmpty());
+        Mockito.verify(repository).reserveStock(productId, 5);
+    }
+
+    @Test
+    public void reserveShouldRejectWholeOrderWhenOneLineIsShort() {
+
+        List<Long> result = service.reserve(Map.of(productId, 5, otherProductId, 11));
+
+        Assertions.assertEquals(List.of(otherProductId), result);
+        Mockito.verify(repository, Mockito.never()).reserveStock(anyLong(), anyInt());
+        Assertions.assertTrue(service.reserve(Map.of(productId, 10)).isEmpty());
+    }
+
+    @Test
+    public void reserveShouldUndoAppliedLinesWhenDatabaseRejectsALine() {
+        Mockito.when(repository.reserveStock(otherProductId, 4)).thenReturn(0);
+
+        List<Long> result = service.reserve(Map.of(productId, 3, otherProductId, 4));
+
+        Assertions.assertEquals(List.of(otherProductId), result);
+        Mockito.verify(repository).releaseStock(productId, 3);
+        Mockito.verify(repository, Mockito.never()).releaseStock(otherProductId, 4);
+    }
+
+    @Test
+    public void reserveShouldNotLimitUntrackedProducts() {
+
+        List<Long> result = service.reserve(Map.of(untrackedProductId, 1000));
+
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void releaseShouldMakeStockAvailableAgain() {
+
+        Assertions.assertTrue(service.reserve(Map.of(productId, 10)).isEmpty());
+        service.release(Map.of(productId, 2));
+
+        Assertions.assertTrue(service.reserve(Map.of(productId, 2)).isEmpty());
+        Mockito.verify(repository).releaseStock(productId, 2);
+    }
+
+    @Test
+    public void reserveShouldNeverOversellUnderConcurrentBuyers() throws Exception {
+        int buyers = 64;
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(buyers);
+        try {
+            List<Future<List<Long>>> results = new ArrayList<>();
+            for (int i = 0; i < buyers; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return service.reserve(Map.of(productId, 1));
+                }));
+            }
+            start.countDown();
+
+            int reserved = 0;
+            for (Future<List<Long>> result : results) {
+                if (result.get(10, TimeUnit.SECONDS).isEmpty()) {
+                    reserved++;
+                }
+            }
+            Assertions.assertEquals(10, reserved);
+            Mockito.verify(repository, Mockito.times(10)).reserveStock(productId, 1);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void reserveShouldNotWaitForCounterOfAnotherProductBeingLoaded() throws Exception {
+        // 1 and 17 fall into the same bin of a 16-bin map
+        Long sameBinProductId = 17L;
+        mockStock(sameBinProductId, 10);
+        StockProjection stock = repository.findStockById(productId).orElseThrow();
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(repository.findStockById(productId)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(10, TimeUnit.SECONDS);
+            return Optional.of(stock);
+        });
+
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Future<List<Long>> slow = executor.submit(() -> service.reserve(Map.of(productId, 1)));
+            Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+            Future<List<Long>> other = executor.submit(() -> service.reserve(Map.of(sameBinProductId, 1)));
+
+            Assertions.assertTrue(other.get(5, TimeUnit.SECONDS).isEmpty());
+            Assertions.assertFalse(slow.isDone());
+
+            release.countDown();
+            Assertions.assertTrue(slow.get(5, TimeUnit.SECONDS).isEmpty());
+        } finally {
+            release.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    private void mockStock(Long id, Integer stock) {
+        StockProjection projection = new StockProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public Integer getStock() {
+                return stock;
+            }
+        };
+        Mockito.when(repository.findStockById(id)).thenReturn(Optional.of(projection));
+    }
+}
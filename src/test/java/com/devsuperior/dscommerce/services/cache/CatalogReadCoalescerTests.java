@@ -0,0 +1,73 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class CatalogReadCoalescerTests {
+
+    private CatalogReadCoalescer coalescer;
+    private ProductCache productCache;
+    private AtomicReference<ProductDTO> database;
+    private AtomicInteger loads;
+    private CountDownLatch loading, release;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        coalescer = new CatalogReadCoalescer();
+        productCache = new ProductCache(100, 60_000L);
+        database = new AtomicReference<>(new ProductDTO(1L, "Old name", "Desc", 10.0, null));
+        loads = new AtomicInteger();
+        loading = new CountDownLatch(1);
+        release = new CountDownLatch(1);
+        executor = Executors.newSingleThreadExecutor();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void readAfterCommittedWriteShouldNotJoinLoadStartedBeforeIt() throws Exception {
+        Future<ProductDTO> slow = executor.submit(this::read);
+        Assertions.assertTrue(loading.await(5, TimeUnit.SECONDS));
+
+        ProductDTO updated = new ProductDTO(1L, "New name", "Desc", 10.0, null);
+        database.set(updated);
+        ProductChangedEvent event = new ProductChangedEvent(1L, updated);
+        coalescer.onProductChanged(event);
+        productCache.onProductChanged(event);
+
+        Assertions.assertEquals("New name", read().getName());
+
+        release.countDown();
+        Assertions.assertEquals("Old name", slow.get(5, TimeUnit.SECONDS).getName());
+        Assertions.assertEquals("New name", read().getName());
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    private ProductDTO read() {
+        return productCache.get(1L, () -> coalescer.product(1L, () -> {
+            ProductDTO snapshot = database.get();
+            if (loads.incrementAndGet() == 1) {
+                loading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return snapshot;
+        }));
+    }
+}
@@ -0,0 +1,106 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class LocalCacheTests {
+
+    private LocalCache<Long, String> cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new LocalCache<>(1000, 60000L);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void getShouldLoadOnMissAndServeHitsFromMemory() {
+
+        Assertions.assertEquals("value-1", cache.get(1L, () -> load(1L)));
+        Assertions.assertEquals("value-1", cache.get(1L, () -> load(1L)));
+
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1L, cache.getHits());
+        Assertions.assertEquals(1L, cache.getMisses());
+    }
+
+    @Test
+    public void getAllShouldLoadOnlyMissingKeysInOneCallAndKeepKeyOrder() {
+        cache.put(2L, "value-2");
+        List<Collection<Long>> calls = new ArrayList<>();
+
+        Map<Long, String> result = cache.getAll(List.of(3L, 2L, 1L, 99L), missing -> {
+            calls.add(new ArrayList<>(missing));
+            Map<Long, String> loaded = new HashMap<>();
+            for (Long key : missing) {
+                if (key != 99L) {
+                    loaded.put(key, load(key));
+                }
+            }
+            return loaded;
+        });
+
+        Assertions.assertEquals(List.of(3L, 2L, 1L), new ArrayList<>(result.keySet()));
+        Assertions.assertEquals(List.of(List.of(3L, 1L, 99L)), calls);
+        Assertions.assertEquals("value-3", cache.getIfPresent(3L));
+    }
+
+    @Test
+    public void getShouldReloadExpiredEntries() {
+        cache = new LocalCache<>(1000, 0L);
+
+        cache.get(1L, () -> load(1L));
+        cache.get(1L, () -> load(1L));
+
+        Assertions.assertEquals(2, loads.get());
+        Assertions.assertEquals(1L, cache.getEvictions());
+    }
+
+    @Test
+    public void putShouldEvictLeastRecentlyUsedEntriesWhenFull() {
+        cache = new LocalCache<>(16, 60000L);
+
+        for (long i = 0; i < 1000; i++) {
+            cache.put(i, "value-" + i);
+        }
+
+        Assertions.assertTrue(cache.size() <= 16);
+        Assertions.assertTrue(cache.getEvictions() >= 984);
+    }
+
+    @Test
+    public void invalidateShouldRemoveEntry() {
+
+        cache.get(1L, () -> load(1L));
+        cache.invalidate(1L);
+        cache.get(1L, () -> load(1L));
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void getShouldNotStoreValueLoadedConcurrentlyWithInvalidation() {
+
+        String value = cache.get(1L, () -> {
+            cache.invalidate(1L);
+            return load(1L);
+        });
+
+        Assertions.assertEquals("value-1", value);
+        Assertions.assertNull(cache.getIfPresent(1L));
+    }
+
+    private String load(Long id) {
+        loads.incrementAndGet();
+        return "value-" + id;
+    }
+}
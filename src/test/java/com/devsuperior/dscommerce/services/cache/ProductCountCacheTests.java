@@ -0,0 +1,64 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class ProductCountCacheTests {
+
+    private ProductCountCache cache;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        cache = new ProductCountCache(60000L, 2);
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    public void getShouldLoadOncePerNormalizedTerm() {
+
+        Assertions.assertEquals(10L, cache.get("mac", this::load));
+        Assertions.assertEquals(10L, cache.get("MAC", this::load));
+        Assertions.assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void getShouldReloadWhenEntryExpired() {
+        cache = new ProductCountCache(0L, 2);
+
+        cache.get("mac", this::load);
+        cache.get("mac", this::load);
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void onProductChangedShouldDropCachedTotals() {
+
+        cache.get("mac", this::load);
+        cache.onProductChanged(new ProductChangedEvent(1L, null));
+        cache.get("mac", this::load);
+
+        Assertions.assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void getShouldStayBoundedByMaxEntries() {
+
+        cache.get("a", this::load);
+        cache.get("b", this::load);
+        cache.get("c", this::load);
+        cache.get("c", this::load);
+
+        Assertions.assertEquals(3, loads.get());
+    }
+
+    private long load() {
+        loads.incrementAndGet();
+        return 10L;
+    }
+}
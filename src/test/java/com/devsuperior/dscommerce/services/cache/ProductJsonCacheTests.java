@@ -0,0 +1,91 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+
+import java.io.ByteArrayInputStream;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.GZIPInputStream;
+
+public class ProductJsonCacheTests {
+
+    private ObjectMapper objectMapper;
+    private CatalogVersion catalogVersion;
+    private ProductJsonCache cache;
+    private AtomicInteger loads;
+    private ProductDTO product;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        objectMapper = new ObjectMapper();
+        catalogVersion = new CatalogVersion();
+        cache = new ProductJsonCache(objectMapper, catalogVersion, 100, 100, 60000L);
+        loads = new AtomicInteger();
+        product = new ProductDTO(new Product(1L, "Macbook Pro", "Notebook", 1250.0, null));
+    }
+
+    @Test
+    public void productShouldSerializeOnceAndReuseBytes() throws Exception {
+
+        CachedJson first = cache.product(1L, this::load);
+        CachedJson second = cache.product(1L, this::load);
+
+        Assertions.assertSame(first, second);
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals("Macbook Pro", objectMapper.readTree(first.getJson()).get("name").asText());
+        Assertions.assertEquals(cache.productETag(1L, null), first.getEtag());
+    }
+
+    @Test
+    public void listingETagShouldChangeAfterProductWrite() {
+        String before = cache.listingETag();
+
+        catalogVersion.onProductChanged(new ProductChangedEvent(1L, product));
+
+        Assertions.assertNotEquals(before, cache.listingETag());
+    }
+
+    @Test
+    public void gzipShouldDecompressToSameJson() throws Exception {
+
+        CachedJson json = cache.product(1L, this::load);
+
+        try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(json.getGzip()))) {
+            Assertions.assertArrayEquals(json.getJson(), in.readAllBytes());
+        }
+        Assertions.assertSame(json.getGzip(), json.getGzip());
+    }
+
+    @Test
+    public void onProductChangedShouldDropProductAndListings() {
+        PageRequest pageable = PageRequest.of(0, 12);
+        cache.product(1L, this::load);
+        cache.listing("", pageable, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(new ProductMinDTO(1L, "Macbook Pro", 1250.0, null)), pageable, 1);
+        });
+
+        cache.onProductChanged(new ProductChangedEvent(1L, product));
+        cache.product(1L, this::load);
+        cache.listing("", pageable, () -> {
+            loads.incrementAndGet();
+            return new PageImpl<>(List.of(), pageable, 0);
+        });
+
+        Assertions.assertEquals(4, loads.get());
+    }
+
+    private ProductDTO load() {
+        loads.incrementAndGet();
+        return product;
+    }
+}
@@ -0,0 +1,120 @@
+package com.devsuperior.dscommerce.services.cache;
+
+import com.devsuperior.dscommerce.services.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SingleFlightTests {
+
+    private SingleFlight<Long, String> flights;
+    private AtomicInteger loads;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        flights = new SingleFlight<>();
+        loads = new AtomicInteger();
+        executor = Executors.newFixedThreadPool(32);
+    }
+
+    @Test
+    public void executeShouldRunLoaderOnceForConcurrentCallers() throws Exception {
+        int callers = 32;
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> flights.execute(1L, () -> {
+                loads.incrementAndGet();
+                await(release);
+                return "value";
+            })));
+        }
+        waitForCoalesced(callers - 1);
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            Assertions.assertEquals("value", future.get(5, TimeUnit.SECONDS));
+        }
+        Assertions.assertEquals(1, loads.get());
+        Assertions.assertEquals(1L, flights.getLoads());
+        Assertions.assertEquals(0, flights.getInFlight());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void executeShouldPropagateLoaderExceptionToEveryWaitingCaller() throws Exception {
+        int callers = 8;
+        CountDownLatch release = new CountDownLatch(1);
+
+        List<Future<String>> futures = new ArrayList<>();
+        for (int i = 0; i < callers; i++) {
+            futures.add(executor.submit(() -> flights.execute(1L, () -> {
+                await(release);
+                throw new ResourceNotFoundException("Recurso não encontrado");
+            })));
+        }
+        waitForCoalesced(callers - 1);
+        release.countDown();
+
+        for (Future<String> future : futures) {
+            ExecutionException e = Assertions.assertThrows(ExecutionException.class, () -> future.get(5, TimeUnit.SECONDS));
+            Assertions.assertInstanceOf(ResourceNotFoundException.class, e.getCause());
+        }
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void executeShouldStartNewLoadAfterFlightWasForgotten() throws Exception {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<String> first = executor.submit(() -> flights.execute(1L, () -> {
+            loads.incrementAndGet();
+            started.countDown();
+            await(release);
+            return "old";
+        }));
+        Assertions.assertTrue(started.await(5, TimeUnit.SECONDS));
+        flights.forget(1L);
+
+        String second = flights.execute(1L, () -> "new-" + loads.incrementAndGet());
+        release.countDown();
+
+        Assertions.assertEquals("new-2", second);
+        Assertions.assertEquals("old", first.get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals(0L, flights.getCoalesced());
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void executeShouldLoadAgainAfterPreviousFlightCompleted() {
+
+        flights.execute(1L, () -> "value-" + loads.incrementAndGet());
+        String second = flights.execute(1L, () -> "value-" + loads.incrementAndGet());
+
+        Assertions.assertEquals("value-2", second);
+        executor.shutdownNow();
+    }
+
+    private void waitForCoalesced(long expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (flights.getCoalesced() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.devsuperior.dscommerce.services.outbox;
+
+import com.devsuperior.dscommerce.entities.OutboxMessage;
+import com.devsuperior.dscommerce.repositories.OutboxMessageRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+
+@ExtendWith(SpringExtension.class)
+public class OutboxDispatcherTests {
+
+    private static final int BATCH_SIZE = 2;
+    private static final long INTERVAL = 100L;
+
+    @InjectMocks
+    private OutboxDispatcher dispatcher = new OutboxDispatcher(true, BATCH_SIZE, INTERVAL, 1000L);
+    @Mock
+    private OutboxMessageRepository repository;
+    @Mock
+    private OutboxSink sink;
+    @Mock
+    private OutboxSink otherSink;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private List<OutboxMessage> messages;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "sinks", List.of(sink, otherSink));
+        messages = new ArrayList<>();
+        for (long id = 1; id <= 3; id++) {
+            messages.add(new OutboxMessage(id, OrderOutbox.ORDER_CREATED, id, "{}", Instant.now()));
+        }
+    }
+
+    @Test
+    public void dispatchShouldSendBatchesInIdOrderAndDeleteThemAfterAllSinksAccepted() {
+        Mockito.when(repository.findNextBatch(any()))
+                .thenReturn(messages.subList(0, 2))
+                .thenReturn(messages.subList(2, 3));
+
+        int result = dispatcher.dispatch(System.currentTimeMillis());
+
+        Assertions.assertEquals(3, result);
+        InOrder inOrder = Mockito.inOrder(sink, otherSink, repository);
+        inOrder.verify(sink).send(messages.subList(0, 2));
+        inOrder.verify(otherSink).send(messages.subList(0, 2));
+        inOrder.verify(repository).deleteAllByIdIn(List.of(1L, 2L));
+        inOrder.verify(sink).send(messages.subList(2, 3));
+        inOrder.verify(otherSink).send(messages.subList(2, 3));
+        inOrder.verify(repository).deleteAllByIdIn(List.of(3L));
+        Assertions.assertEquals(2L, dispatcher.getMetrics().get("batches"));
+        Assertions.assertEquals(1, dispatcher.getMetrics().get("lastBatchSize"));
+    }
+
+    @Test
+    public void dispatchShouldKeepBatchAndBackOffWhenSinkFails() {
+        Mockito.when(repository.findNextBatch(any())).thenReturn(messages.subList(0, 2));
+        Mockito.doThrow(new IllegalStateException("offline")).doNothing().when(otherSink).send(any());
+        long now = System.currentTimeMillis();
+
+        Assertions.assertEquals(0, dispatcher.dispatch(now));
+        Mockito.verify(repository, Mockito.never()).deleteAllByIdIn(any());
+        Assertions.assertEquals(1L, dispatcher.getMetrics().get("retries"));
+        Assertions.assertEquals(1, dispatcher.getMetrics().get("consecutiveFailures"));
+
+        // still inside the backoff window: nothing is read
+        Assertions.assertEquals(0, dispatcher.dispatch(now + INTERVAL));
+        Mockito.verify(repository, Mockito.times(1)).findNextBatch(any());
+
+        Mockito.when(repository.findNextBatch(any())).thenReturn(messages.subList(0, 2)).thenReturn(List.of());
+        Assertions.assertEquals(2, dispatcher.dispatch(now + 2 * INTERVAL));
+        Mockito.verify(sink, Mockito.times(2)).send(messages.subList(0, 2));
+        Mockito.verify(repository).deleteAllByIdIn(List.of(1L, 2L));
+        Assertions.assertEquals(0, dispatcher.getMetrics().get("consecutiveFailures"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.devsuperior.dscommerce.services.scheduling;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+public class TimingWheelTests {
+
+    private TimingWheel<Long> wheel;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        wheel = new TimingWheel<>(10L, 8, 0L);
+    }
+
+    @Test
+    public void advanceShouldReturnItemsOnlyOnceTheirDeadlineIsReached() {
+        wheel.schedule(1L, 25L);
+        wheel.schedule(2L, 50L);
+
+        Assertions.assertTrue(wheel.advance(20L).isEmpty());
+        Assertions.assertEquals(List.of(1L), wheel.advance(30L));
+        Assertions.assertTrue(wheel.advance(40L).isEmpty());
+        Assertions.assertEquals(List.of(2L), wheel.advance(50L));
+        Assertions.assertEquals(0, wheel.size());
+    }
+
+    @Test
+    public void advanceShouldKeepItemsDueInLaterTurnsOfTheWheel() {
+        wheel.schedule(1L, 30L);
+        wheel.schedule(2L, 30L + 80L * 3);
+
+        Assertions.assertEquals(List.of(1L), wheel.advance(30L));
+        Assertions.assertTrue(wheel.advance(30L + 80L * 2).isEmpty());
+        Assertions.assertEquals(List.of(2L), wheel.advance(30L + 80L * 3));
+    }
+
+    @Test
+    public void scheduleShouldMakePastDeadlinesDueOnNextAdvance() {
+        wheel.advance(100L);
+        wheel.schedule(1L, 5L);
+
+        Assertions.assertEquals(List.of(1L), wheel.advance(110L));
+    }
+
+    @Test
+    public void advanceShouldReturnEverythingDueAfterLongPause() {
+        for (long id = 1; id <= 100; id++) {
+            wheel.schedule(id, id * 7);
+        }
+        wheel.schedule(1000L, 10_000L);
+
+        Set<Long> due = new HashSet<>(wheel.advance(5_000L));
+
+        Assertions.assertEquals(100, due.size());
+        Assertions.assertEquals(1, wheel.size());
+        Assertions.assertEquals(List.of(1000L), wheel.advance(10_000L));
+    }
+
+    @Test
+    public void constructorShouldRejectWheelSizeThatIsNotPowerOfTwo() {
+
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new TimingWheel<Long>(10L, 6, 0L));
+    }
+}
@@ -0,0 +1,122 @@
+package com.devsuperior.dscommerce.services.scheduling;
+
+import com.devsuperior.dscommerce.events.OrderCreatedEvent;
+import com.devsuperior.dscommerce.projections.ProductQuantityProjection;
+import com.devsuperior.dscommerce.repositories.OrderItemRepository;
+import com.devsuperior.dscommerce.repositories.OrderRepository;
+import com.devsuperior.dscommerce.entities.OrderStatus;
+import com.devsuperior.dscommerce.services.StockReservationService;
+import com.devsuperior.dscommerce.services.outbox.OrderOutbox;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+
+@ExtendWith(SpringExtension.class)
+public class UnpaidOrderReaperTests {
+
+    private static final long DEADLINE = 60_000L;
+
+    @InjectMocks
+    private UnpaidOrderReaper reaper = new UnpaidOrderReaper(true, DEADLINE, 10L, 64, 2);
+    @Mock
+    private OrderRepository repository;
+    @Mock
+    private OrderItemRepository itemRepository;
+    @Mock
+    private StockReservationService stockService;
+    @Mock
+    private OrderOutbox outbox;
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private Instant moment;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        moment = Instant.now();
+        Mockito.when(itemRepository.sumQuantitiesByOrderIds(any())).thenReturn(List.of(line(1L, 3L)));
+    }
+
+    @Test
+    public void reapShouldLeaveOrdersAloneBeforeTheirDeadline() {
+        reaper.onOrderCreated(new OrderCreatedEvent(10L, moment));
+
+        Assertions.assertEquals(0, reaper.reap(moment.toEpochMilli() + DEADLINE - 1000));
+        Mockito.verify(jdbcTemplate, Mockito.never()).batchUpdate(anyString(), anyList());
+    }
+
+    @Test
+    public void reapShouldCancelInBatchesAndReleaseStockOnlyOfOrdersStillWaiting() {
+        for (long id = 10; id < 13; id++) {
+            reaper.onOrderCreated(new OrderCreatedEvent(id, moment));
+        }
+        Mockito.when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenReturn(new int[]{1, 0})
+                .thenReturn(new int[]{1});
+
+        int result = reaper.reap(moment.toEpochMilli() + DEADLINE + 100);
+
+        Assertions.assertEquals(2, result);
+        Mockito.verify(jdbcTemplate, Mockito.times(2)).batchUpdate(anyString(), anyList());
+        Mockito.verify(itemRepository, Mockito.times(2)).sumQuantitiesByOrderIds(Mockito.argThat(ids -> ids.size() == 1));
+        Mockito.verify(stockService, Mockito.times(2)).release(Map.of(1L, 3));
+        Mockito.verify(outbox).statusChanged(List.of(10L), OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED);
+        Mockito.verify(outbox).statusChanged(List.of(12L), OrderStatus.WAITING_PAYMENT, OrderStatus.CANCELED);
+        Assertions.assertEquals(0, reaper.getMetrics().get("scheduled"));
+    }
+
+    @Test
+    public void reapShouldNotReleaseStockWhenNoOrderWasStillWaiting() {
+        reaper.onOrderCreated(new OrderCreatedEvent(10L, moment));
+        Mockito.when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{0});
+
+        Assertions.assertEquals(0, reaper.reap(moment.toEpochMilli() + DEADLINE + 100));
+        Mockito.verify(stockService, Mockito.never()).release(any());
+    }
+
+    @Test
+    public void reapShouldRetryBatchOnNextTickWhenItFails() {
+        reaper.onOrderCreated(new OrderCreatedEvent(10L, moment));
+        Mockito.when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+                .thenThrow(new QueryTimeoutException("timeout"))
+                .thenReturn(new int[]{1});
+        long now = moment.toEpochMilli() + DEADLINE + 100;
+
+        Assertions.assertEquals(0, reaper.reap(now));
+        Assertions.assertEquals(1, reaper.getMetrics().get("scheduled"));
+        Assertions.assertEquals(1, reaper.reap(now + 10));
+        Assertions.assertEquals(1L, reaper.getMetrics().get("failures"));
+    }
+
+    private ProductQuantityProjection line(Long productId, Long quantity) {
+        return new ProductQuantityProjection() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getQuantity() {
+                return quantity;
+            }
+        };
+    }
+}
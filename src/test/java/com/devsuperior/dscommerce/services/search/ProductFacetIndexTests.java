@@ -0,0 +1,217 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.CategoryFacetDTO;
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductFilterDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Category;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductCategoryProjection;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import com.devsuperior.dscommerce.repositories.CategoryRepository;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductFacetIndexTests {
+
+    @InjectMocks
+    private ProductFacetIndex index = new ProductFacetIndex(new double[]{1000.0, 100.0});
+    @Mock
+    private ProductRepository repository;
+    @Mock
+    private CategoryRepository categoryRepository;
+    @Mock
+    private ProductSearchIndex searchIndex;
+
+    private PageRequest pageable;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        pageable = PageRequest.of(0, 10);
+
+        Mockito.when(categoryRepository.findAll()).thenReturn(List.of(
+                new Category(1L, "Livros"), new Category(2L, "Eletrônicos"), new Category(3L, "Computadores")));
+        Mockito.when(repository.findAllCategoryLinks()).thenReturn(List.of(
+                link(1L, 1L), link(2L, 2L), link(2L, 3L), link(3L, 3L), link(4L, 3L)));
+
+        Mockito.when(searchIndex.isReady()).thenReturn(true);
+        Mockito.when(searchIndex.matchingIds("mac")).thenReturn(new long[]{3L});
+
+        index.rebuild(List.of(
+                row(3L, "Macbook Pro", 1250.0),
+                row(1L, "The Lord of the Rings", 90.5),
+                row(2L, "Smart TV", 2190.0),
+                row(4L, "PC Gamer", 900.0)));
+    }
+
+    @Test
+    public void filterShouldReturnAllProductsInIdOrderWhenNoFilterIsGiven() {
+
+        ProductFilterDTO result = index.filter("", List.of(), null, null, pageable);
+
+        Assertions.assertEquals(4L, result.getTotalElements());
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L), ids(result));
+    }
+
+    @Test
+    public void filterShouldMatchAnySelectedCategory() {
+
+        ProductFilterDTO result = index.filter("", List.of(1L, 2L), null, null, pageable);
+
+        Assertions.assertEquals(List.of(1L, 2L), ids(result));
+    }
+
+    @Test
+    public void filterShouldCombineCategoryPriceAndName() {
+
+        ProductFilterDTO result = index.filter("mac", List.of(3L), 1000.0, 1300.0, pageable);
+
+        Assertions.assertEquals(List.of(3L), ids(result));
+    }
+
+    @Test
+    public void filterShouldCheckPricesInsidePartiallyCoveredBuckets() {
+
+        ProductFilterDTO result = index.filter("", List.of(), 950.0, 2000.0, pageable);
+
+        Assertions.assertEquals(List.of(3L), ids(result));
+    }
+
+    @Test
+    public void categoryFacetsShouldIgnoreTheCategorySelection() {
+
+        ProductFilterDTO result = index.filter("", List.of(1L), null, 1000.0, pageable);
+
+        Assertions.assertEquals(List.of(1L), ids(result));
+        CategoryFacetDTO computers = result.getCategories().get(2);
+        Assertions.assertEquals("Computadores", computers.getName());
+        Assertions.assertEquals(1L, computers.getCount());
+        Assertions.assertEquals(1L, result.getPrices().get(0).getCount());
+        Assertions.assertEquals(0L, result.getPrices().get(1).getCount());
+    }
+
+    @Test
+    public void filterShouldReturnRequestedPage() {
+
+        ProductFilterDTO result = index.filter("", List.of(3L), null, null, PageRequest.of(1, 2));
+
+        Assertions.assertEquals(3L, result.getTotalElements());
+        Assertions.assertEquals(List.of(4L), ids(result));
+    }
+
+    @Test
+    public void onProductChangedShouldMoveProductBetweenBuckets() {
+        Product product = new Product(4L, "PC Gamer", "Computador para jogos", 50.0, null);
+        product.getCategories().add(new Category(1L, null));
+
+        index.onProductChanged(new ProductChangedEvent(4L, new ProductDTO(product)));
+
+        ProductFilterDTO result = index.filter("", List.of(1L), null, 100.0, pageable);
+        Assertions.assertEquals(List.of(1L, 4L), ids(result));
+        Assertions.assertEquals("Livros", result.getCategories().get(0).getName());
+        Assertions.assertEquals(0L, result.getCategories().get(2).getCount());
+    }
+
+    @Test
+    public void onProductChangedShouldRemoveDeletedProduct() {
+
+        index.onProductChanged(new ProductChangedEvent(2L, null));
+
+        ProductFilterDTO result = index.filter("", List.of(), null, null, pageable);
+        Assertions.assertEquals(List.of(1L, 3L, 4L), ids(result));
+        Assertions.assertEquals(0L, result.getCategories().get(1).getCount());
+    }
+
+    @Test
+    public void filterShouldHonourRequestedSort() {
+
+        ProductFilterDTO result = index.filter("", List.of(3L), null, null,
+                PageRequest.of(0, 2, Sort.by(Sort.Order.desc("price"))));
+
+        Assertions.assertEquals(3L, result.getTotalElements());
+        Assertions.assertEquals(List.of(2L, 3L), ids(result));
+        result = index.filter("", List.of(), null, null, PageRequest.of(1, 2, Sort.by("name")));
+        Assertions.assertEquals(List.of(2L, 1L), ids(result));
+    }
+
+    @Test
+    public void isReadyShouldWaitForNameIndex() {
+
+        Mockito.when(searchIndex.isReady()).thenReturn(false);
+
+        Assertions.assertFalse(index.isReady());
+    }
+
+    @Test
+    public void onProductChangedShouldReclaimOrdinalsOfDeletedProducts() {
+        for (long id = 100; id < 300; id++) {
+            Product product = new Product(id, "Produto " + id, null, 10.0, null);
+            index.onProductChanged(new ProductChangedEvent(id, new ProductDTO(product)));
+        }
+        for (long id = 100; id < 299; id++) {
+            index.onProductChanged(new ProductChangedEvent(id, null));
+        }
+
+        ProductFilterDTO result = index.filter("", List.of(), null, null, PageRequest.of(0, 10));
+
+        Assertions.assertEquals(List.of(1L, 2L, 3L, 4L, 299L), ids(result));
+        Assertions.assertTrue(((List<?>) ReflectionTestUtils.getField(index, "documents")).size() < 100);
+        Assertions.assertEquals(List.of(3L), ids(index.filter("mac", List.of(3L), null, null, pageable)));
+    }
+
+    private List<Long> ids(ProductFilterDTO result) {
+        return result.getContent().stream().map(ProductMinDTO::getId).toList();
+    }
+
+    private ProductCategoryProjection link(Long productId, Long categoryId) {
+        return new ProductCategoryProjection() {
+            @Override
+            public Long getProductId() {
+                return productId;
+            }
+
+            @Override
+            public Long getCategoryId() {
+                return categoryId;
+            }
+        };
+    }
+
+    private ProductIndexProjection row(Long id, String name, Double price) {
+        return new ProductIndexProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Double getPrice() {
+                return price;
+            }
+
+            @Override
+            public String getImgUrl() {
+                return null;
+            }
+        };
+    }
+}
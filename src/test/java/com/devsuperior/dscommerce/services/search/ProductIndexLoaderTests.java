@@ -0,0 +1,85 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import com.devsuperior.dscommerce.repositories.ProductRepository;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductIndexLoaderTests {
+
+    @InjectMocks
+    private ProductIndexLoader loader;
+    @Mock
+    private ProductRepository repository;
+    @Mock
+    private ProductSearchIndex searchIndex;
+    @Mock
+    private ProductSuggestIndex suggestIndex;
+    @Mock
+    private ProductFacetIndex facetIndex;
+
+    @Test
+    public void loadShouldReadProductsOnceAndRebuildEveryIndex() {
+        List<ProductIndexProjection> rows = List.of();
+        Mockito.when(repository.findAllForIndex()).thenReturn(rows);
+
+        loader.load();
+
+        Mockito.verify(repository, Mockito.times(1)).findAllForIndex();
+        Mockito.verify(searchIndex).rebuild(rows);
+        Mockito.verify(suggestIndex).rebuild(rows);
+        Mockito.verify(facetIndex).rebuild(rows);
+    }
+
+    @Test
+    public void loadShouldReplayEventThatFiresDuringRebuildAfterEveryIndexIsBuilt() {
+        List<ProductIndexProjection> rows = List.of();
+        ProductChangedEvent event = new ProductChangedEvent(1L, null);
+        Mockito.when(repository.findAllForIndex()).thenReturn(rows);
+        Mockito.doAnswer(invocation -> {
+            loader.onProductChanged(event);
+            return null;
+        }).when(suggestIndex).rebuild(rows);
+
+        loader.load();
+
+        InOrder inOrder = Mockito.inOrder(searchIndex, suggestIndex, facetIndex);
+        inOrder.verify(searchIndex).rebuild(rows);
+        inOrder.verify(suggestIndex).rebuild(rows);
+        inOrder.verify(facetIndex).rebuild(rows);
+        inOrder.verify(searchIndex).onProductChanged(event);
+        inOrder.verify(suggestIndex).onProductChanged(event);
+        inOrder.verify(facetIndex).onProductChanged(event);
+    }
+
+    @Test
+    public void onProductChangedShouldApplyEventDirectlyOnceLoaded() {
+        Mockito.when(repository.findAllForIndex()).thenReturn(List.of());
+        loader.load();
+        ProductChangedEvent event = new ProductChangedEvent(1L, null);
+
+        loader.onProductChanged(event);
+
+        Mockito.verify(searchIndex).onProductChanged(event);
+        Mockito.verify(suggestIndex).onProductChanged(event);
+        Mockito.verify(facetIndex).onProductChanged(event);
+    }
+
+    @Test
+    public void onProductChangedShouldQueueEventUntilFirstLoad() {
+        ProductChangedEvent event = new ProductChangedEvent(1L, null);
+
+        loader.onProductChanged(event);
+
+        Mockito.verify(searchIndex, Mockito.never()).onProductChanged(event);
+    }
+}
@@ -0,0 +1,124 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import com.devsuperior.dscommerce.projections.ProductIndexProjection;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductSearchIndexTests {
+
+    @InjectMocks
+    private ProductSearchIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        List<ProductIndexProjection> rows = List.of(
+                row(1L, "Macbook Pro"),
+                row(2L, "Smart TV"),
+                row(3L, "PC Gamer"),
+                row(4L, "Notebook Dell"));
+
+        index.rebuild(rows);
+    }
+
+    @Test
+    public void rebuildShouldMarkIndexAsReady() {
+
+        Assertions.assertTrue(index.isReady());
+    }
+
+    @Test
+    public void searchShouldMatchAnySubstringOfNameIgnoringCaseInIdOrder() {
+
+        Page<ProductMinDTO> result = index.search("OOK", PageRequest.of(0, 10));
+
+        Assertions.assertEquals(2, result.getTotalElements());
+        Assertions.assertEquals(1L, result.getContent().get(0).getId());
+        Assertions.assertEquals(4L, result.getContent().get(1).getId());
+    }
+
+    @Test
+    public void searchShouldMatchTextSpanningWords() {
+
+        Page<ProductMinDTO> result = index.search("k pr", PageRequest.of(0, 10));
+
+        Assertions.assertEquals(1, result.getTotalElements());
+        Assertions.assertEquals(1L, result.getContent().get(0).getId());
+        Assertions.assertEquals(0, index.search("pro macbook", PageRequest.of(0, 10)).getTotalElements());
+    }
+
+    @Test
+    public void searchShouldMatchTextShorterThanATrigram() {
+
+        Page<ProductMinDTO> result = index.search("tv", PageRequest.of(0, 10));
+
+        Assertions.assertEquals(1, result.getTotalElements());
+        Assertions.assertEquals(2L, result.getContent().get(0).getId());
+    }
+
+    @Test
+    public void searchShouldReturnRequestedPage() {
+
+        Page<ProductMinDTO> result = index.search("book", PageRequest.of(1, 1));
+
+        Assertions.assertEquals(2, result.getTotalElements());
+        Assertions.assertEquals(1, result.getNumberOfElements());
+        Assertions.assertEquals(4L, result.getContent().get(0).getId());
+    }
+
+    @Test
+    public void onProductChangedShouldReindexUpdatedProduct() {
+        Product product = new Product(3L, "Cadeira Gamer", "Cadeira ergonômica", 900.0, null);
+
+        index.onProductChanged(new ProductChangedEvent(3L, new ProductDTO(product)));
+
+        Assertions.assertEquals(0, index.search("pc", PageRequest.of(0, 10)).getTotalElements());
+        Assertions.assertEquals(3L, index.search("cadeira", PageRequest.of(0, 10)).getContent().get(0).getId());
+    }
+
+    @Test
+    public void onProductChangedShouldRemoveDeletedProduct() {
+
+        index.onProductChanged(new ProductChangedEvent(1L, null));
+
+        Page<ProductMinDTO> result = index.search("book", PageRequest.of(0, 10));
+        Assertions.assertEquals(1, result.getTotalElements());
+        Assertions.assertEquals(4L, result.getContent().get(0).getId());
+    }
+
+    private ProductIndexProjection row(Long id, String name) {
+        return new ProductIndexProjection() {
+            @Override
+            public Long getId() {
+                return id;
+            }
+
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public Double getPrice() {
+                return 100.0;
+            }
+
+            @Override
+            public String getImgUrl() {
+                return null;
+            }
+        };
+    }
+}
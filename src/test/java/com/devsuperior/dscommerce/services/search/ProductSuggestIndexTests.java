@@ -0,0 +1,81 @@
+package com.devsuperior.dscommerce.services.search;
+
+import com.devsuperior.dscommerce.dto.ProductDTO;
+import com.devsuperior.dscommerce.dto.ProductMinDTO;
+import com.devsuperior.dscommerce.entities.Product;
+import com.devsuperior.dscommerce.events.ProductChangedEvent;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.springframework.test.context.junit.jupiter.SpringExtension;
+
+import java.util.List;
+
+@ExtendWith(SpringExtension.class)
+public class ProductSuggestIndexTests {
+
+    @InjectMocks
+    private ProductSuggestIndex index;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        index.rebuild(List.of());
+
+        index(1L, "Macbook Pro");
+        index(2L, "Mac Mini");
+        index(3L, "Smart TV");
+        index(4L, "Cadeira para Macbook");
+    }
+
+    @Test
+    public void suggestShouldMatchWordPrefixes() {
+
+        List<ProductMinDTO> result = index.suggest("mac", 10);
+
+        Assertions.assertEquals(3, result.size());
+    }
+
+    @Test
+    public void suggestShouldRankNamesStartingWithQueryFirst() {
+
+        List<ProductMinDTO> result = index.suggest("macb", 10);
+
+        Assertions.assertEquals(2, result.size());
+        Assertions.assertEquals(1L, result.get(0).getId());
+        Assertions.assertEquals(4L, result.get(1).getId());
+    }
+
+    @Test
+    public void suggestShouldRespectLimit() {
+
+        List<ProductMinDTO> result = index.suggest("m", 1);
+
+        Assertions.assertEquals(1, result.size());
+        Assertions.assertEquals(2L, result.get(0).getId());
+    }
+
+    @Test
+    public void suggestShouldNotMatchInsideWords() {
+
+        List<ProductMinDTO> result = index.suggest("book", 10);
+
+        Assertions.assertTrue(result.isEmpty());
+    }
+
+    @Test
+    public void suggestShouldReflectUpdatesAndDeletes() {
+
+        index(3L, "Smart TV Samsung");
+        index.onProductChanged(new ProductChangedEvent(2L, null));
+
+        Assertions.assertEquals(3L, index.suggest("sams", 10).get(0).getId());
+        Assertions.assertEquals(2, index.suggest("mac", 10).size());
+    }
+
+    private void index(Long id, String name) {
+        Product product = new Product(id, name, "Descrição do produto", 100.0, null);
+        index.onProductChanged(new ProductChangedEvent(id, new ProductDTO(product)));
+    }
+}